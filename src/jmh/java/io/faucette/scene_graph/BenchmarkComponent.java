@@ -0,0 +1,18 @@
+package io.faucette.scene_graph;
+
+
+public class BenchmarkComponent extends Component {
+    public long ticks;
+
+
+    public BenchmarkComponent() {
+        super();
+        ticks = 0;
+    }
+
+    @Override
+    public BenchmarkComponent update() {
+        ticks++;
+        return this;
+    }
+}
@@ -0,0 +1,74 @@
+package io.faucette.scene_graph;
+
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class ComponentLookupBenchmark {
+    @Param({"1", "4", "8"})
+    public int componentCount;
+
+    private Entity entity;
+    private Class<? extends Component> first;
+    private Class<? extends Component> last;
+
+
+    @Setup
+    public void setup() {
+        Component[] components = {
+            new ComponentA(), new ComponentB(), new ComponentC(), new ComponentD(),
+            new ComponentE(), new ComponentF(), new ComponentG(), new ComponentH()
+        };
+
+        entity = new Entity();
+        for (int i = 0; i < componentCount; i++) {
+            entity.addComponent(components[i]);
+        }
+
+        first = components[0].getClass();
+        last = components[componentCount - 1].getClass();
+    }
+
+    @Benchmark
+    public Component getFirst() {
+        return entity.getComponent(first);
+    }
+
+    @Benchmark
+    public Component getLast() {
+        return entity.getComponent(last);
+    }
+
+    @Benchmark
+    public boolean hasMissing() {
+        return entity.hasComponent(BenchmarkComponent.class);
+    }
+
+
+    public static class ComponentA extends Component {}
+    public static class ComponentB extends Component {}
+    public static class ComponentC extends Component {}
+    public static class ComponentD extends Component {}
+    public static class ComponentE extends Component {}
+    public static class ComponentF extends Component {}
+    public static class ComponentG extends Component {}
+    public static class ComponentH extends Component {}
+}
@@ -0,0 +1,105 @@
+package io.faucette.scene_graph;
+
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class EntityChurnBenchmark {
+    @Param({"10000", "100000"})
+    public int liveCount;
+
+    @Param({"100", "5000"})
+    public int batchSize;
+
+    private Scene scene;
+    private Entity[] batch;
+    private EntityPool pool;
+
+
+    @Setup
+    public void setup() {
+        scene = new Scene();
+
+        for (int i = 0; i < liveCount; i++) {
+            Entity entity = new Entity();
+            entity.addComponent(new BenchmarkComponent());
+            scene.addEntity(entity);
+        }
+
+        scene.init();
+
+        batch = new Entity[batchSize];
+        for (int i = 0; i < batchSize; i++) {
+            batch[i] = new Entity();
+            batch[i].addComponent(new BenchmarkComponent());
+        }
+
+        pool = new EntityPool(scene, new EntityPool.Factory() {
+            @Override
+            public Entity create() {
+                return new Entity().addComponent(new BenchmarkComponent());
+            }
+        });
+        pool.prewarm(batchSize);
+    }
+
+    @Benchmark
+    public Scene addRemoveExisting() {
+        for (int i = 0; i < batchSize; i++) {
+            scene.addEntity(batch[i]);
+        }
+        scene.update();
+
+        for (int i = 0; i < batchSize; i++) {
+            scene.removeEntity(batch[i]);
+        }
+        return scene.update();
+    }
+
+    @Benchmark
+    public Scene spawnDespawnNew() {
+        for (int i = 0; i < batchSize; i++) {
+            Entity entity = new Entity();
+            entity.addComponent(new BenchmarkComponent());
+            scene.addEntity(entity);
+            batch[i] = entity;
+        }
+        scene.update();
+
+        for (int i = 0; i < batchSize; i++) {
+            scene.removeEntity(batch[i]);
+        }
+        return scene.update();
+    }
+
+    @Benchmark
+    public Scene spawnDespawnPooled() {
+        for (int i = 0; i < batchSize; i++) {
+            batch[i] = pool.spawn();
+        }
+        scene.update();
+
+        for (int i = 0; i < batchSize; i++) {
+            pool.despawn(batch[i]);
+        }
+        return scene.update();
+    }
+}
@@ -0,0 +1,54 @@
+package io.faucette.scene_graph;
+
+
+import org.openjdk.jol.info.GraphLayout;
+
+
+public class EntityFootprint {
+    private static final int COUNT = 10000;
+
+
+    public static void main(String[] args) {
+        print("entity", entities(0));
+        print("entity with 1 component", entities(1));
+        print("entity with 3 components", entities(3));
+        print("scene entity with 3 components", sceneEntities(3));
+    }
+
+    private static Entity[] entities(int componentCount) {
+        Entity[] entities = new Entity[COUNT];
+
+        for (int i = 0; i < COUNT; i++) {
+            entities[i] = new Entity();
+
+            if (componentCount > 0) {
+                entities[i].addComponent(new ComponentLookupBenchmark.ComponentA());
+            }
+            if (componentCount > 1) {
+                entities[i].addComponent(new ComponentLookupBenchmark.ComponentB());
+            }
+            if (componentCount > 2) {
+                entities[i].addComponent(new ComponentLookupBenchmark.ComponentC());
+            }
+        }
+        return entities;
+    }
+
+    private static Entity[] sceneEntities(int componentCount) {
+        Entity[] entities = entities(componentCount);
+        Scene scene = new Scene();
+
+        for (Entity entity: entities) {
+            scene.addEntity(entity);
+        }
+        return entities;
+    }
+
+    private static void print(String label, Entity[] entities) {
+        GraphLayout empty = GraphLayout.parseInstance((Object) new Entity[COUNT]);
+        GraphLayout layout = GraphLayout.parseInstance((Object) entities);
+        long bytes = (layout.totalSize() - empty.totalSize()) / COUNT;
+
+        System.out.println(label + ": " + bytes + " bytes");
+    }
+}
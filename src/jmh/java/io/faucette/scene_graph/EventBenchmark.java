@@ -0,0 +1,99 @@
+package io.faucette.scene_graph;
+
+
+import java.util.concurrent.TimeUnit;
+
+import io.faucette.event_emitter.Emitter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+// eventCount damage events per frame to leaf entities two levels deep. the channel bubbles to
+// a listener on each leaf's root and delivers in one batch, emit has no bubbling so its
+// listener sits on the leaf and runs on the spot
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class EventBenchmark {
+    @Param({"1000", "100000"})
+    public int eventCount;
+
+    private Entity[] leaves;
+    private EventChannel<Damage> channel;
+    private long total;
+
+
+    @Setup
+    public void setup() {
+        Scene scene = new Scene();
+
+        leaves = new Entity[256];
+        channel = new EventChannel<>(Damage.class, new EventChannel.Factory<Damage>() {
+            @Override
+            public Damage create() {
+                return new Damage();
+            }
+        }).setBubbles(true).prewarm(eventCount);
+
+        EventListener<Damage> listener = new EventListener<Damage>() {
+            @Override
+            public void onEvent(Damage event) {
+                total += event.amount;
+            }
+        };
+        Emitter.Callback callback = new Emitter.Callback() {
+            @Override
+            public void call(Emitter emitter, Object[] args) {
+                total += (Integer) args[0];
+            }
+        };
+
+        for (int i = 0; i < leaves.length; i++) {
+            Entity root = new Entity();
+            Entity child = new Entity();
+
+            leaves[i] = new Entity();
+            child.addChild(leaves[i]);
+            root.addChild(child);
+            scene.addEntity(root);
+
+            channel.addListener(root, listener);
+            leaves[i].on("damage", callback);
+        }
+    }
+
+    @Benchmark
+    public long emit() {
+        for (int i = 0; i < eventCount; i++) {
+            leaves[i & 255].emit("damage", i & 15);
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long channel() {
+        for (int i = 0; i < eventCount; i++) {
+            channel.queue(leaves[i & 255]).amount = i & 15;
+        }
+        channel.dispatch();
+        return total;
+    }
+
+
+    public static class Damage extends Event {
+        public int amount;
+    }
+}
@@ -0,0 +1,72 @@
+package io.faucette.scene_graph;
+
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class HierarchyBenchmark {
+    @Param({"16", "256", "2048", "100000"})
+    public int depth;
+
+    private Entity chain;
+    private Entity rootA;
+    private Entity rootB;
+
+
+    @Setup
+    public void setup() {
+        chain = buildChain(depth);
+        rootA = new Entity();
+        rootB = new Entity();
+        rootA.addChild(chain);
+    }
+
+    private static Entity buildChain(int depth) {
+        Entity root = new Entity();
+        Entity parent = root;
+
+        for (int i = 1; i < depth; i++) {
+            Entity child = new Entity();
+            child.addComponent(new BenchmarkComponent());
+            parent.addChild(child);
+            parent = child;
+        }
+        return root;
+    }
+
+    @Benchmark
+    public Entity build() {
+        return buildChain(depth);
+    }
+
+    @Benchmark
+    public Entity reparent() {
+        rootB.addChild(chain);
+        return rootA.addChild(chain);
+    }
+
+    @Benchmark
+    public Scene addRemoveScene() {
+        Scene scene = new Scene();
+        scene.addEntity(chain);
+        return scene.removeEntity(chain);
+    }
+}
@@ -0,0 +1,81 @@
+package io.faucette.scene_graph;
+
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+// spawns count copies of a 20 entity squad, one transform each, into a fresh scene.
+// allocateOnly is the floor, the entities and transforms without any scene bookkeeping
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class PrefabBenchmark {
+    private static final int MEMBERS = 19;
+
+    @Param({"10000"})
+    public int count;
+
+    private Prefab prefab;
+
+
+    @Setup
+    public void setup() {
+        prefab = new Prefab(buildSquad());
+    }
+
+    private static Entity buildSquad() {
+        Entity leader = new Entity();
+        leader.addComponent(new Transform());
+
+        for (int i = 0; i < MEMBERS; i++) {
+            Entity member = new Entity();
+            member.addComponent(new Transform().setPosition(i, 0f, 0f));
+            leader.addChild(member);
+        }
+        return leader;
+    }
+
+    @Benchmark
+    public Entity[] allocateOnly() {
+        Entity[] entities = new Entity[count * (MEMBERS + 1)];
+
+        for (int i = 0; i < entities.length; i++) {
+            entities[i] = new Entity();
+            entities[i].addComponent(new Transform());
+        }
+        return entities;
+    }
+
+    @Benchmark
+    public Scene buildByHand() {
+        Scene scene = new Scene();
+
+        for (int i = 0; i < count; i++) {
+            scene.addEntity(buildSquad());
+        }
+        return scene;
+    }
+
+    @Benchmark
+    public Scene instantiate() {
+        Scene scene = new Scene();
+
+        prefab.instantiate(scene, count);
+        return scene;
+    }
+}
@@ -0,0 +1,54 @@
+package io.faucette.scene_graph;
+
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class SceneUpdateBenchmark {
+    @Param({"10000", "100000", "1000000"})
+    public int entityCount;
+
+    // share of entities set inactive, they stay in the scene but are skipped by update
+    @Param({"0", "90"})
+    public int dormantPercent;
+
+    private Scene scene;
+
+
+    @Setup
+    public void setup() {
+        scene = new Scene();
+
+        for (int i = 0; i < entityCount; i++) {
+            Entity entity = new Entity();
+            entity.addComponent(new BenchmarkComponent());
+            entity.setActive(i % 100 >= dormantPercent);
+            scene.addEntity(entity);
+        }
+
+        scene.init();
+    }
+
+    @Benchmark
+    public Scene update() {
+        return scene.update();
+    }
+}
@@ -0,0 +1,75 @@
+package io.faucette.scene_graph;
+
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class SnapshotBenchmark {
+    @Param({"100000", "1000000"})
+    public int entityCount;
+
+    private SceneSnapshot snapshot;
+    private Scene scene;
+    private Path path;
+
+
+    @Setup
+    public void setup() throws IOException {
+        snapshot = new SceneSnapshot();
+        scene = new Scene();
+
+        // chains of 8 so the hierarchy is part of what gets written and rebuilt
+        Entity parent = null;
+        for (int i = 0; i < entityCount; i++) {
+            Entity entity = new Entity();
+            entity.addComponent(new Transform().setPosition(i, 0f, 0f));
+
+            if (i % 8 == 0) {
+                scene.addEntity(entity);
+            } else {
+                parent.addChild(entity);
+            }
+            parent = entity;
+        }
+
+        path = Files.createTempFile("scene", ".snapshot");
+        snapshot.write(scene, path);
+    }
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(path);
+    }
+
+    @Benchmark
+    public SceneSnapshot write() throws IOException {
+        return snapshot.write(scene, path);
+    }
+
+    @Benchmark
+    public List<Entity> load() throws IOException {
+        return snapshot.load(path, new Scene());
+    }
+}
@@ -0,0 +1,67 @@
+package io.faucette.scene_graph;
+
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class TransformBenchmark {
+    @Param({"10000", "100000"})
+    public int entityCount;
+
+    @Param({"0", "100"})
+    public int movingCount;
+
+    private Scene scene;
+    private Transform[] transforms;
+
+
+    @Setup
+    public void setup() {
+        scene = new Scene();
+        transforms = new Transform[entityCount];
+
+        Entity parent = null;
+        for (int i = 0; i < entityCount; i++) {
+            Entity entity = new Entity();
+            transforms[i] = new Transform().setPosition(1f, 0f, 0f);
+            entity.addComponent(transforms[i]);
+
+            // chains of 8 so world matrices depend on their parents
+            if (i % 8 == 0) {
+                scene.addEntity(entity);
+            } else {
+                parent.addChild(entity);
+            }
+            parent = entity;
+        }
+
+        scene.init();
+        scene.update();
+    }
+
+    @Benchmark
+    public Scene update() {
+        for (int i = 0; i < movingCount; i++) {
+            transforms[i * 8 % entityCount].translate(0.01f, 0f, 0f);
+        }
+        return scene.update();
+    }
+}
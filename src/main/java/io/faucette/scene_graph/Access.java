@@ -0,0 +1,53 @@
+package io.faucette.scene_graph;
+
+
+import java.util.HashSet;
+import java.util.Set;
+
+
+class Access {
+    private Set<Class<? extends Component>> reads;
+    private Set<Class<? extends Component>> writes;
+
+
+    public Access() {
+        reads = null;
+        writes = null;
+    }
+
+    public boolean isDeclared() {
+        return reads != null;
+    }
+
+    public void read(Class<? extends Component> componentClass) {
+        declare();
+        reads.add(componentClass);
+    }
+    public void write(Class<? extends Component> componentClass) {
+        declare();
+        writes.add(componentClass);
+    }
+
+    public boolean conflicts(Access other) {
+        if (!isDeclared() || !other.isDeclared()) {
+            return true;
+        }
+        return intersects(writes, other.reads) || intersects(writes, other.writes) || intersects(reads, other.writes);
+    }
+
+    private void declare() {
+        if (reads == null) {
+            reads = new HashSet<>();
+            writes = new HashSet<>();
+        }
+    }
+
+    private static boolean intersects(Set<Class<? extends Component>> a, Set<Class<? extends Component>> b) {
+        for (Class<? extends Component> componentClass: a) {
+            if (b.contains(componentClass)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
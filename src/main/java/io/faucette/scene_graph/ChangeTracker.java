@@ -0,0 +1,114 @@
+package io.faucette.scene_graph;
+
+
+import java.util.Arrays;
+
+
+// log of a scene's structural changes in the order they were applied, plus the set of components
+// marked changed, kept from one DeltaEncoder.encode to the next
+class ChangeTracker {
+    static final byte ADD_ENTITY = 0;
+    static final byte REMOVE_ENTITY = 1;
+    static final byte ADD_COMPONENT = 2;
+    static final byte REMOVE_COMPONENT = 3;
+    static final byte SET_TAG = 4;
+
+    private byte[] ops;
+    private long[] ids;
+    private long[] parentIds;
+    private Object[] arguments;
+    private int size;
+
+    private Component[] changed;
+    private int changedCount;
+
+
+    public ChangeTracker() {
+        ops = new byte[64];
+        ids = new long[64];
+        parentIds = new long[64];
+        arguments = new Object[64];
+        size = 0;
+
+        changed = new Component[64];
+        changedCount = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+    public byte op(int index) {
+        return ops[index];
+    }
+    public long id(int index) {
+        return ids[index];
+    }
+    public long parentId(int index) {
+        return parentIds[index];
+    }
+    public Object argument(int index) {
+        return arguments[index];
+    }
+
+    public int changedCount() {
+        return changedCount;
+    }
+    public Component changed(int index) {
+        return changed[index];
+    }
+
+    public void addEntity(Entity entity, long parentId) {
+        append(ADD_ENTITY, entity.id, parentId, entity);
+    }
+    public void removeEntity(Entity entity) {
+        append(REMOVE_ENTITY, entity.id, 0L, null);
+    }
+    public void addComponent(Component component) {
+        append(ADD_COMPONENT, component.entity.id, 0L, component);
+    }
+    public void removeComponent(Component component) {
+        append(REMOVE_COMPONENT, component.entity.id, 0L, component.getClass());
+    }
+    public void setTag(Entity entity) {
+        append(SET_TAG, entity.id, 0L, entity);
+    }
+
+    // components are marked from update(), which may run on pool threads
+    public synchronized void markChanged(Component component) {
+        if (!component.changed) {
+            component.changed = true;
+
+            if (changedCount == changed.length) {
+                changed = Arrays.copyOf(changed, changedCount * 2);
+            }
+            changed[changedCount++] = component;
+        }
+    }
+
+    public synchronized void clear() {
+        Arrays.fill(arguments, 0, size, null);
+        size = 0;
+
+        for (int i = 0; i < changedCount; i++) {
+            changed[i].changed = false;
+            changed[i] = null;
+        }
+        changedCount = 0;
+    }
+
+    private void append(byte op, long id, long parentId, Object argument) {
+        if (size == ops.length) {
+            int capacity = size * 2;
+            ops = Arrays.copyOf(ops, capacity);
+            ids = Arrays.copyOf(ids, capacity);
+            parentIds = Arrays.copyOf(parentIds, capacity);
+            arguments = Arrays.copyOf(arguments, capacity);
+        }
+
+        ops[size] = op;
+        ids[size] = id;
+        parentIds[size] = parentId;
+        arguments[size] = argument;
+        size++;
+    }
+}
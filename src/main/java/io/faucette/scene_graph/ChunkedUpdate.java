@@ -0,0 +1,114 @@
+package io.faucette.scene_graph;
+
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+
+class ChunkedUpdate extends RecursiveAction {
+    private List<Component> components;
+    private Chunk[] chunks;
+    private int chunkCount;
+
+
+    public ChunkedUpdate() {
+        components = null;
+        chunks = new Chunk[0];
+        chunkCount = 0;
+    }
+
+    public void update(ForkJoinPool pool, List<Component> components, int minChunkSize) {
+        int size = components.size();
+        int chunkSize = Math.max(minChunkSize, size / (pool.getParallelism() * 4));
+
+        this.components = components;
+        chunkCount = (size + chunkSize - 1) / chunkSize;
+
+        if (chunks.length < chunkCount) {
+            int length = chunks.length;
+            chunks = Arrays.copyOf(chunks, chunkCount);
+
+            for (int i = length; i < chunkCount; i++) {
+                chunks[i] = new Chunk(this);
+            }
+        }
+        for (int i = 0; i < chunkCount; i++) {
+            chunks[i].reset(i * chunkSize, Math.min(size, (i + 1) * chunkSize));
+        }
+
+        // only a worker of the executor itself joins in, a worker of some other pool, like a
+        // SceneHost's, hands the chunks over and waits
+        reinitialize();
+        if (ForkJoinTask.getPool() == pool) {
+            invoke();
+        } else {
+            pool.invoke(this);
+        }
+
+        // thread confined components run after the barrier on the calling thread
+        for (int i = 0; i < chunkCount; i++) {
+            Chunk chunk = chunks[i];
+
+            if (chunk.hasConfined) {
+                for (int j = chunk.from; j < chunk.to; j++) {
+                    Component component = components.get(j);
+
+                    if (component.isThreadConfined()) {
+                        component.update();
+                    }
+                }
+            }
+        }
+
+        this.components = null;
+    }
+
+    @Override
+    protected void compute() {
+        for (int i = chunkCount - 1; i > 0; i--) {
+            chunks[i].fork();
+        }
+        chunks[0].invoke();
+        for (int i = 1; i < chunkCount; i++) {
+            chunks[i].join();
+        }
+    }
+
+
+    private static class Chunk extends RecursiveAction {
+        private final ChunkedUpdate owner;
+        private int from;
+        private int to;
+        private boolean hasConfined;
+
+
+        public Chunk(ChunkedUpdate owner) {
+            this.owner = owner;
+        }
+
+        public void reset(int from, int to) {
+            reinitialize();
+            this.from = from;
+            this.to = to;
+            hasConfined = false;
+        }
+
+        @Override
+        protected void compute() {
+            List<Component> components = owner.components;
+
+            for (int i = from; i < to; i++) {
+                Component component = components.get(i);
+
+                if (component.isThreadConfined()) {
+                    hasConfined = true;
+                } else {
+                    component.update();
+                }
+            }
+        }
+    }
+}
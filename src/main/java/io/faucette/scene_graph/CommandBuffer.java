@@ -0,0 +1,114 @@
+package io.faucette.scene_graph;
+
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+
+// structural changes recorded after Scene.init and applied in order at the start of Scene.update.
+// the thread inside Scene.init or Scene.update appends to plain arrays, any other thread, and
+// every thread between updates, goes through a lock-free queue that is drained behind the
+// owner's commands
+class CommandBuffer {
+    static final byte ADD_ENTITY = 0;
+    static final byte REMOVE_ENTITY = 1;
+    static final byte ADD_COMPONENT = 2;
+    static final byte REMOVE_COMPONENT = 3;
+    static final byte SET_PARENT = 4;
+    static final byte ADD_INSTANCES = 5;
+    static final byte SET_ACTIVE = 6;
+
+    private volatile Thread owner;
+    private byte[] ops;
+    private Entity[] entities;
+    private Object[] arguments;
+    private int size;
+    private final ConcurrentLinkedQueue<Command> foreign;
+
+
+    public CommandBuffer() {
+        owner = null;
+        ops = new byte[64];
+        entities = new Entity[64];
+        arguments = new Object[64];
+        size = 0;
+        foreign = new ConcurrentLinkedQueue<>();
+    }
+
+    public void setOwner(Thread owner) {
+        this.owner = owner;
+    }
+
+    public void add(byte op, Entity entity, Object argument) {
+        if (Thread.currentThread() == owner) {
+            append(op, entity, argument);
+        } else {
+            foreign.add(new Command(op, entity, argument));
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+    public byte op(int index) {
+        return ops[index];
+    }
+    public Entity entity(int index) {
+        return entities[index];
+    }
+    public Object argument(int index) {
+        return arguments[index];
+    }
+
+    // moves commands queued by other threads behind the owner's, returns false if there were none
+    public boolean pollForeign() {
+        Command command = foreign.poll();
+
+        if (command == null) {
+            return false;
+        }
+        while (command != null) {
+            append(command.op, command.entity, command.argument);
+            command = foreign.poll();
+        }
+        return true;
+    }
+
+    public void reset() {
+        Arrays.fill(entities, 0, size, null);
+        Arrays.fill(arguments, 0, size, null);
+        size = 0;
+    }
+    public void clear() {
+        reset();
+        foreign.clear();
+    }
+
+    private void append(byte op, Entity entity, Object argument) {
+        if (size == ops.length) {
+            int capacity = size * 2;
+            ops = Arrays.copyOf(ops, capacity);
+            entities = Arrays.copyOf(entities, capacity);
+            arguments = Arrays.copyOf(arguments, capacity);
+        }
+
+        ops[size] = op;
+        entities[size] = entity;
+        arguments[size] = argument;
+        size++;
+    }
+
+
+    private static final class Command {
+        private final byte op;
+        private final Entity entity;
+        private final Object argument;
+
+
+        public Command(byte op, Entity entity, Object argument) {
+            this.op = op;
+            this.entity = entity;
+            this.argument = argument;
+        }
+    }
+}
@@ -7,10 +7,18 @@ import io.faucette.event_emitter.EventEmitter;
 public class Component extends EventEmitter implements Comparable<Component> {
     protected Entity entity;
     protected ComponentManager componentManager;
+    int componentManagerIndex;
+    int activeIndex;
+    boolean active;
+    boolean changed;
 
 
     public Component() {
         componentManager = null;
+        componentManagerIndex = -1;
+        activeIndex = -1;
+        active = true;
+        changed = false;
         entity = null;
     }
 
@@ -28,6 +36,26 @@ public class Component extends EventEmitter implements Comparable<Component> {
         return componentManager;
     }
 
+    // an inactive component stays in its manager but is skipped by update. after Scene.init
+    // the manager picks up the change at the start of the next Scene.update
+    public Component setActive(boolean active) {
+        if (this.active != active) {
+            this.active = active;
+
+            if (componentManager != null && componentManager.scene != null) {
+                componentManager.scene.activeChanged(entity, this);
+            }
+        }
+        return this;
+    }
+    public boolean isActiveSelf() {
+        return active;
+    }
+    // active itself and its entity is active in the hierarchy
+    public boolean isActive() {
+        return active && (entity == null || entity.isActiveInHierarchy());
+    }
+
     public Class<? extends ComponentManager> getComponentManagerClass() {
         return ComponentManager.class;
     }
@@ -35,6 +63,10 @@ public class Component extends EventEmitter implements Comparable<Component> {
         return new ComponentManager();
     }
 
+    public boolean isThreadConfined() {
+        return false;
+    }
+
     public Component init() {
         return this;
     }
@@ -44,6 +76,26 @@ public class Component extends EventEmitter implements Comparable<Component> {
     public Component update() {
         return this;
     }
+    public Component hierarchyChanged() {
+        return this;
+    }
+    // called when an EntityPool recycles this component's entity, restore the state a fresh instance would have
+    public Component reset() {
+        return this;
+    }
+
+    // flags this component's state for the next replication delta, a no-op unless the scene
+    // has a DeltaEncoder, safe to call from update() on any thread
+    public Component markChanged() {
+        if (!changed && componentManager != null) {
+            Scene scene = componentManager.scene;
+
+            if (scene != null) {
+                scene.markChanged(this);
+            }
+        }
+        return this;
+    }
 
     public Component destroy() {
         if (entity != null) {
@@ -0,0 +1,8 @@
+package io.faucette.scene_graph;
+
+
+// makes a fresh, detached copy of one component class for Prefab, the copy must not share
+// mutable state with the source
+public interface ComponentCopier<T extends Component> {
+    T copy(T component);
+}
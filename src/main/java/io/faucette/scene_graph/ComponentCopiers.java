@@ -0,0 +1,32 @@
+package io.faucette.scene_graph;
+
+
+import java.util.HashMap;
+import java.util.Map;
+
+
+// registry of ComponentCopiers used by Prefab, Transform is registered by default
+public class ComponentCopiers {
+    private final Map<Class<? extends Component>, ComponentCopier<? extends Component>> copiers;
+
+
+    public ComponentCopiers() {
+        copiers = new HashMap<>();
+
+        register(Transform.class, new TransformCopier());
+    }
+
+    public <T extends Component> ComponentCopiers register(Class<T> componentClass, ComponentCopier<T> copier) {
+        copiers.put(componentClass, copier);
+        return this;
+    }
+    public boolean isRegistered(Class<? extends Component> componentClass) {
+        return copiers.containsKey(componentClass);
+    }
+
+    // null if the class has no copier
+    @SuppressWarnings("unchecked")
+    public <T extends Component> ComponentCopier<T> getCopier(Class<? extends Component> componentClass) {
+        return (ComponentCopier<T>) copiers.get(componentClass);
+    }
+}
@@ -3,9 +3,11 @@ package io.faucette.scene_graph;
 
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.concurrent.ForkJoinPool;
 
 import io.faucette.event_emitter.EventEmitter;
 
@@ -13,21 +15,78 @@ import io.faucette.event_emitter.EventEmitter;
 public class ComponentManager extends EventEmitter {
     protected Scene scene;
     protected List<Component> components;
+    // the active subset of components, what update iterates
+    protected List<Component> activeComponents;
+    private boolean activeSorted;
+    private int sortedCount;
+    private Component[] mergeBuffer;
+    final Access access;
+
+    private boolean parallel;
+    private int minChunkSize;
+    private ChunkedUpdate chunkedUpdate;
 
 
     public ComponentManager() {
         scene = null;
         components = new ArrayList<>();
+        activeComponents = new ArrayList<>();
+        activeSorted = true;
+        sortedCount = 0;
+        mergeBuffer = null;
+        access = new Access();
+
+        parallel = false;
+        minChunkSize = 1024;
+        chunkedUpdate = null;
     }
 
     public boolean isEmpty() {
         return components.isEmpty();
     }
+    public int getActiveCount() {
+        return activeComponents.size();
+    }
 
     public int getOrder() {
        return 0;
     }
 
+    protected ComponentManager declareRead(Class<? extends Component> componentClass) {
+        access.read(componentClass);
+        return this;
+    }
+    protected ComponentManager declareWrite(Class<? extends Component> componentClass) {
+        access.write(componentClass);
+        return this;
+    }
+
+    public boolean isOrdered() {
+        return false;
+    }
+    public boolean isOrderStable() {
+        return false;
+    }
+    public boolean isDirty() {
+        return isOrdered() && (sortedCount != components.size() || !activeSorted);
+    }
+
+    public boolean isParallel() {
+        return parallel;
+    }
+    public ComponentManager setParallel(boolean parallel) {
+        this.parallel = parallel;
+        return this;
+    }
+
+    public int getMinChunkSize() {
+        return minChunkSize;
+    }
+    public ComponentManager setMinChunkSize(int minChunkSize) {
+        this.minChunkSize = minChunkSize < 1 ? 1 : minChunkSize;
+        return this;
+    }
+
     public ComponentManager init() {
         for (Component component: components) {
             component.init();
@@ -36,32 +95,163 @@ public class ComponentManager extends EventEmitter {
     }
 
     public ComponentManager update() {
-        for (Component component: components) {
-            component.update();
+        ForkJoinPool pool = parallel && scene != null ? scene.getExecutor() : null;
+
+        if (pool != null && activeComponents.size() >= minChunkSize * 2) {
+            if (chunkedUpdate == null) {
+                chunkedUpdate = new ChunkedUpdate();
+            }
+            chunkedUpdate.update(pool, activeComponents, minChunkSize);
+        } else {
+            for (int i = 0, il = activeComponents.size(); i < il; i++) {
+                activeComponents.get(i).update();
+            }
         }
         return this;
     }
+    public ComponentManager fixedUpdate() {
+        return this;
+    }
 
     public ComponentManager sort() {
-        Collections.sort(components);
+        if (isOrdered()) {
+            int size = components.size();
+
+            if (!isOrderStable() || sortedCount == 0) {
+                Collections.sort(components);
+                reindex(0);
+            } else if (sortedCount < size) {
+                merge();
+            }
+
+            sortedCount = size;
+            rebuildActive();
+        }
         return this;
     }
 
+    private void merge() {
+        int size = components.size();
+        int count = size - sortedCount;
+
+        if (mergeBuffer == null || mergeBuffer.length < count) {
+            mergeBuffer = new Component[Math.max(count, 16)];
+        }
+        for (int i = 0; i < count; i++) {
+            mergeBuffer[i] = components.get(sortedCount + i);
+        }
+        Arrays.sort(mergeBuffer, 0, count);
+
+        int i = sortedCount - 1;
+        int j = count - 1;
+        int k = size - 1;
+
+        while (j >= 0) {
+            if (i >= 0 && components.get(i).compareTo(mergeBuffer[j]) > 0) {
+                components.set(k--, components.get(i--));
+            } else {
+                components.set(k--, mergeBuffer[j]);
+                mergeBuffer[j--] = null;
+            }
+        }
+
+        reindex(i + 1);
+    }
+
     public Iterator<? extends Component> iterator() {
         return components.iterator();
     }
 
     public boolean hasComponent(Component component) {
-        return components.contains(component);
+        int index = component.componentManagerIndex;
+        return index != -1 && index < components.size() && components.get(index) == component;
     }
     public <T extends Component> ComponentManager addComponent(T component) {
-        if (!components.contains(component)) {
+        if (!hasComponent(component)) {
+            component.componentManagerIndex = components.size();
             components.add(component);
+
+            if (component.isActive()) {
+                addActive(component);
+            }
         }
         return this;
     }
     public <T extends Component> ComponentManager removeComponent(T component) {
-        components.remove(component);
+        if (hasComponent(component)) {
+            int index = component.componentManagerIndex;
+
+            if (component.activeIndex != -1) {
+                removeActive(component);
+            }
+
+            if (isOrdered()) {
+                components.remove(index);
+                reindex(index);
+
+                if (index < sortedCount) {
+                    sortedCount--;
+                }
+            } else {
+                Component last = components.remove(components.size() - 1);
+
+                if (last != component) {
+                    components.set(index, last);
+                    last.componentManagerIndex = index;
+                }
+            }
+
+            component.componentManagerIndex = -1;
+        }
         return this;
     }
+
+    // moves the component in or out of the active list, O(1). ordered managers restore the
+    // order of the active list on their next sort
+    void setComponentActive(Component component, boolean active) {
+        if (hasComponent(component)) {
+            if (active && component.activeIndex == -1) {
+                addActive(component);
+            } else if (!active && component.activeIndex != -1) {
+                removeActive(component);
+            }
+        }
+    }
+    private void addActive(Component component) {
+        component.activeIndex = activeComponents.size();
+        activeComponents.add(component);
+        activeSorted = false;
+    }
+    private void removeActive(Component component) {
+        int index = component.activeIndex;
+        Component last = activeComponents.remove(activeComponents.size() - 1);
+
+        if (last != component) {
+            activeComponents.set(index, last);
+            last.activeIndex = index;
+        }
+        component.activeIndex = -1;
+        activeSorted = false;
+    }
+    private void rebuildActive() {
+        if (!activeSorted) {
+            activeComponents.clear();
+
+            for (int i = 0, il = components.size(); i < il; i++) {
+                Component component = components.get(i);
+
+                if (component.activeIndex != -1) {
+                    component.activeIndex = activeComponents.size();
+                    activeComponents.add(component);
+                }
+            }
+            activeSorted = true;
+        }
+    }
+
+    private void reindex(int from) {
+        for (int i = from, il = components.size(); i < il; i++) {
+            components.get(i).componentManagerIndex = i;
+        }
+    }
 }
@@ -0,0 +1,15 @@
+package io.faucette.scene_graph;
+
+
+import java.nio.ByteBuffer;
+
+
+// writes and reads the state of one component class for SceneSnapshot and delta replication,
+// read must consume exactly the size() bytes write produced. a ComponentSerializers registry can
+// be shared between threads, so serializers must not keep per call state in fields
+public interface ComponentSerializer<T extends Component> {
+    int size(T component);
+    void write(T component, ByteBuffer out);
+    T create();
+    void read(T component, ByteBuffer in);
+}
@@ -0,0 +1,66 @@
+package io.faucette.scene_graph;
+
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+// registry of ComponentSerializers, a class's type id is its registration order so
+// both ends of a replication stream have to register the same classes in the same order
+public class ComponentSerializers {
+    private final Map<Class<? extends Component>, Integer> typeIds;
+    private final List<Class<? extends Component>> types;
+    private final List<ComponentSerializer<? extends Component>> serializers;
+
+
+    public ComponentSerializers() {
+        typeIds = new HashMap<>();
+        types = new ArrayList<>();
+        serializers = new ArrayList<>();
+
+        register(Transform.class, new TransformSerializer());
+    }
+
+    public <T extends Component> ComponentSerializers register(Class<T> componentClass, ComponentSerializer<T> serializer) {
+        Integer typeId = typeIds.get(componentClass);
+
+        if (typeId != null) {
+            serializers.set(typeId, serializer);
+        } else {
+            typeIds.put(componentClass, types.size());
+            types.add(componentClass);
+            serializers.add(serializer);
+        }
+        return this;
+    }
+    public boolean isRegistered(Class<? extends Component> componentClass) {
+        return typeIds.containsKey(componentClass);
+    }
+
+    public int size() {
+        return types.size();
+    }
+    // -1 if the class has no serializer
+    public int getTypeId(Class<? extends Component> componentClass) {
+        Integer typeId = typeIds.get(componentClass);
+        return typeId == null ? -1 : typeId;
+    }
+    public Class<? extends Component> getType(int typeId) {
+        return types.get(typeId);
+    }
+    public int getTypeId(String className) {
+        for (int i = 0, il = types.size(); i < il; i++) {
+            if (types.get(i).getName().equals(className)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T extends Component> ComponentSerializer<T> getSerializer(int typeId) {
+        return (ComponentSerializer<T>) serializers.get(typeId);
+    }
+}
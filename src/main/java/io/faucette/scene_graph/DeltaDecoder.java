@@ -0,0 +1,187 @@
+package io.faucette.scene_graph;
+
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+
+// applies DeltaEncoder deltas to a mirror scene, see DeltaEncoder for the format.
+// deltas have to be decoded in order, entities are tracked by the ids of the source scene.
+// entities the decoder did not create itself, like the roots a SceneSnapshot of the source
+// loaded into the mirror, are only updated once they are passed to track
+public class DeltaDecoder {
+    private final Scene scene;
+    private final ComponentSerializers serializers;
+    private final LongMap<Entity> entities;
+    private long sequence;
+    private byte[] scratch;
+
+
+    public DeltaDecoder(Scene scene, ComponentSerializers serializers) {
+        this.scene = scene;
+        this.serializers = serializers;
+        entities = new LongMap<>();
+        sequence = 0L;
+        scratch = new byte[256];
+    }
+
+    public Scene getScene() {
+        return scene;
+    }
+    public long getSequence() {
+        return sequence;
+    }
+    // the mirror of the source entity with this id
+    public Entity getEntity(long id) {
+        return entities.get(id);
+    }
+
+    // follows changes to these entities and their subtrees, which keep the ids of the source
+    public DeltaDecoder track(List<Entity> roots) {
+        for (int i = 0, il = roots.size(); i < il; i++) {
+            track(roots.get(i));
+        }
+        return this;
+    }
+    public DeltaDecoder track(Entity root) {
+        EntityStack stack = EntityStack.acquire();
+
+        try {
+            stack.push(root);
+
+            while (!stack.isEmpty()) {
+                Entity entity = stack.pop();
+
+                entities.put(entity.id, entity);
+                stack.pushChildren(entity);
+            }
+        } finally {
+            stack.release();
+        }
+        return this;
+    }
+
+    public DeltaDecoder decode(ByteBuffer in) throws IOException {
+        try {
+            if (in.getInt() != DeltaEncoder.MAGIC) {
+                throw new IOException("not a scene delta");
+            }
+            long next = in.getLong();
+            if (next != sequence + 1L) {
+                throw new IOException("expected delta " + (sequence + 1L) + " got " + next);
+            }
+            sequence = next;
+
+            byte op;
+            while ((op = in.get()) != DeltaEncoder.END) {
+                long id = in.getLong();
+
+                switch (op) {
+                    case ChangeTracker.ADD_ENTITY:
+                        addEntity(id, in.getLong(), SceneSnapshot.getString(in, scratch), SceneSnapshot.getString(in, scratch));
+                        break;
+                    case ChangeTracker.REMOVE_ENTITY:
+                        removeEntity(id);
+                        break;
+                    case ChangeTracker.ADD_COMPONENT:
+                    case DeltaEncoder.CHANGE_COMPONENT:
+                        readComponent(id, in);
+                        break;
+                    case ChangeTracker.REMOVE_COMPONENT:
+                        removeComponent(id, in.getShort());
+                        break;
+                    case ChangeTracker.SET_TAG:
+                        String tag = SceneSnapshot.getString(in, scratch);
+                        Entity entity = entities.get(id);
+                        if (entity != null) {
+                            entity.setTag(tag);
+                        }
+                        break;
+                    default:
+                        throw new IOException("invalid delta record " + op);
+                }
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IOException("truncated scene delta", e);
+        }
+        return this;
+    }
+
+    private void addEntity(long id, long parentId, String name, String tag) {
+        Entity entity = new Entity(name);
+
+        entity.id = id;
+        if (!tag.isEmpty()) {
+            entity.setTag(tag);
+        }
+        entities.put(id, entity);
+
+        Entity parent = parentId != 0L ? entities.get(parentId) : null;
+        if (parent != null) {
+            parent.addChild(entity);
+        } else {
+            scene.addEntity(entity);
+        }
+    }
+    private void removeEntity(long id) {
+        Entity entity = entities.remove(id);
+
+        if (entity != null) {
+            Entity parent = entity.getParent();
+
+            if (parent == null) {
+                scene.removeEntity(entity);
+            } else if (entities.get(parent.id) == parent) {
+                entity.detach();
+            }
+            // otherwise the parent was removed first and took this entity with it
+        }
+    }
+    // an add creates the component, a change reads into the existing one
+    private void readComponent(long id, ByteBuffer in) throws IOException {
+        int type = in.getShort();
+        int size = in.getInt();
+        int start = in.position();
+        Entity entity = entities.get(id);
+
+        if (type < 0 || type >= serializers.size()) {
+            throw new IOException("invalid component type " + type);
+        }
+        if (entity == null) {
+            in.position(start + size);
+            return;
+        }
+
+        ComponentSerializer<Component> serializer = serializers.getSerializer(type);
+        Component component = entity.getComponent(serializers.getType(type));
+
+        if (component == null) {
+            component = serializer.create();
+            serializer.read(component, in);
+            entity.addComponent(component);
+        } else {
+            serializer.read(component, in);
+        }
+
+        if (in.position() - start != size) {
+            throw new IOException("component serializer for type " + type + " read " +
+                (in.position() - start) + " bytes, expected " + size);
+        }
+    }
+    private void removeComponent(long id, int type) throws IOException {
+        Entity entity = entities.get(id);
+
+        if (type < 0 || type >= serializers.size()) {
+            throw new IOException("invalid component type " + type);
+        }
+        if (entity != null) {
+            Component component = entity.getComponent(serializers.getType(type));
+
+            if (component != null) {
+                entity.removeComponent(component);
+            }
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package io.faucette.scene_graph;
+
+
+import java.nio.ByteBuffer;
+
+
+// tracks a scene's changes and encodes everything since the last encode() as one delta for a
+// DeltaDecoder, the work per encode is proportional to the number of changes, not the scene size.
+// only changes made after the encoder is created are sent, so start a mirror from a SceneSnapshot
+// written at that point and pass the loaded roots to DeltaDecoder.track.
+//
+// delta:   int magic, long sequence, records..., byte END
+// records: ADD_ENTITY long id, long parentId (0 for roots), string name, string tag
+//          REMOVE_ENTITY long id
+//          ADD_COMPONENT long entityId, short type, int length, state
+//          REMOVE_COMPONENT long entityId, short type
+//          SET_TAG long id, string tag
+//          CHANGE_COMPONENT long entityId, short type, int length, state
+//
+// only components with a registered ComponentSerializer are replicated
+public class DeltaEncoder {
+    static final int MAGIC = 0x5347444c;
+    static final byte CHANGE_COMPONENT = 5;
+    static final byte END = -1;
+
+    private final Scene scene;
+    private final ComponentSerializers serializers;
+    private final ChangeTracker changeTracker;
+    private ByteBuffer buffer;
+    private long sequence;
+
+
+    public DeltaEncoder(Scene scene, ComponentSerializers serializers) {
+        this.scene = scene;
+        this.serializers = serializers;
+        changeTracker = new ChangeTracker();
+        buffer = ByteBuffer.allocate(4096);
+        sequence = 0L;
+
+        scene.setChangeTracker(changeTracker);
+    }
+
+    public Scene getScene() {
+        return scene;
+    }
+    public long getSequence() {
+        return sequence;
+    }
+
+    // stops tracking the scene
+    public DeltaEncoder close() {
+        if (scene.getChangeTracker() == changeTracker) {
+            scene.setChangeTracker(null);
+        }
+        changeTracker.clear();
+        return this;
+    }
+
+    // the returned buffer is reused by the next encode, copy it if it has to outlive that
+    public ByteBuffer encode() {
+        buffer.clear();
+
+        ensure(12);
+        buffer.putInt(MAGIC);
+        buffer.putLong(++sequence);
+
+        for (int i = 0, il = changeTracker.size(); i < il; i++) {
+            long id = changeTracker.id(i);
+            Object argument = changeTracker.argument(i);
+
+            switch (changeTracker.op(i)) {
+                case ChangeTracker.ADD_ENTITY:
+                    Entity entity = (Entity) argument;
+                    ensure(17);
+                    buffer.put(ChangeTracker.ADD_ENTITY);
+                    buffer.putLong(id);
+                    buffer.putLong(changeTracker.parentId(i));
+                    putString(entity.getName());
+                    putString(entity.getTag());
+                    break;
+                case ChangeTracker.REMOVE_ENTITY:
+                    ensure(9);
+                    buffer.put(ChangeTracker.REMOVE_ENTITY);
+                    buffer.putLong(id);
+                    break;
+                case ChangeTracker.ADD_COMPONENT:
+                    putComponent(ChangeTracker.ADD_COMPONENT, id, (Component) argument);
+                    break;
+                case ChangeTracker.REMOVE_COMPONENT:
+                    @SuppressWarnings("unchecked")
+                    int typeId = serializers.getTypeId((Class<? extends Component>) argument);
+                    if (typeId != -1) {
+                        ensure(11);
+                        buffer.put(ChangeTracker.REMOVE_COMPONENT);
+                        buffer.putLong(id);
+                        buffer.putShort((short) typeId);
+                    }
+                    break;
+                case ChangeTracker.SET_TAG:
+                    ensure(9);
+                    buffer.put(ChangeTracker.SET_TAG);
+                    buffer.putLong(id);
+                    putString(((Entity) argument).getTag());
+                    break;
+            }
+        }
+
+        for (int i = 0, il = changeTracker.changedCount(); i < il; i++) {
+            Component component = changeTracker.changed(i);
+            Entity entity = component.entity;
+
+            // removed since it was marked
+            if (entity != null && entity.scene == scene) {
+                putComponent(CHANGE_COMPONENT, entity.id, component);
+            }
+        }
+
+        ensure(1);
+        buffer.put(END);
+
+        changeTracker.clear();
+
+        buffer.flip();
+        return buffer;
+    }
+
+    private void putComponent(byte op, long id, Component component) {
+        int typeId = serializers.getTypeId(component.getClass());
+
+        if (typeId != -1) {
+            ComponentSerializer<Component> serializer = serializers.getSerializer(typeId);
+            int size = serializer.size(component);
+
+            ensure(15 + size);
+            buffer.put(op);
+            buffer.putLong(id);
+            buffer.putShort((short) typeId);
+            buffer.putInt(size);
+
+            int start = buffer.position();
+            serializer.write(component, buffer);
+
+            if (buffer.position() - start != size) {
+                throw new IllegalStateException(component.getClass().getName() + " serializer wrote " +
+                    (buffer.position() - start) + " bytes, size() returned " + size);
+            }
+        }
+    }
+    private void putString(String string) {
+        byte[] bytes = string.isEmpty() ? SceneSnapshot.EMPTY : string.getBytes(SceneSnapshot.UTF_8);
+
+        if (bytes.length > 0xffff) {
+            throw new IllegalArgumentException("string longer than 65535 bytes");
+        }
+
+        ensure(2 + bytes.length);
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+    private void ensure(int size) {
+        if (buffer.remaining() < size) {
+            ByteBuffer next = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + size));
+            buffer.flip();
+            next.put(buffer);
+            buffer = next;
+        }
+    }
+}
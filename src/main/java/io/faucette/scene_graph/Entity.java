@@ -4,18 +4,22 @@ package io.faucette.scene_graph;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.UUID;
 import java.util.Collections;
+import java.util.UUID;
 
 import io.faucette.event_emitter.EventEmitter;
 
 
 public class Entity extends EventEmitter {
-    private UUID id;
+    long id;
+    UUID uuid;
+    long handle;
+    EntityPool pool;
     private String name;
     private String tag;
     private int depth;
+    boolean active;
+    boolean activeInHierarchy;
     protected Scene scene;
     private Entity root;
     private Entity parent;
@@ -26,12 +30,17 @@ public class Entity extends EventEmitter {
 
 
     public Entity(String name) {
-        id = UUID.randomUUID();
+        id = 0L;
+        uuid = null;
+        handle = -1L;
+        pool = null;
 
         this.name = name == null ? "" : name;
         tag = "";
 
         depth = 0;
+        active = true;
+        activeInHierarchy = true;
         scene = null;
         root = this;
         parent = null;
@@ -44,9 +53,25 @@ public class Entity extends EventEmitter {
         this("");
     }
 
-    public UUID getId() {
+    // ids come from the IdGenerator of the first scene the entity is added to, so an
+    // entity that was never in a scene has id 0 and no UUID
+    public long getId() {
         return id;
     }
+    public boolean hasId() {
+        return id != 0L;
+    }
+    // only set when a scene using a UUIDIdGenerator assigned the id
+    public UUID getUUID() {
+        return uuid;
+    }
+    public boolean hasUUID() {
+        return uuid != null;
+    }
+
+    public long getHandle() {
+        return handle;
+    }
 
     public String getName() {
         return name;
@@ -56,7 +81,12 @@ public class Entity extends EventEmitter {
     }
 
     public Entity setTag(String tag) {
+        String previous = this.tag;
         this.tag = tag;
+
+        if (scene != null) {
+            scene.updateTag(this, previous);
+        }
         return this;
     }
     public String getTag() {
@@ -73,6 +103,28 @@ public class Entity extends EventEmitter {
         return depth;
     }
 
+    // an inactive entity and its descendants stay in the scene but their components are
+    // skipped by update. after Scene.init the managers pick up the change at the start of the
+    // next Scene.update
+    public Entity setActive(boolean active) {
+        if (this.active != active) {
+            this.active = active;
+            Entity.updateActive(this);
+
+            if (scene != null) {
+                scene.activeChanged(this, null);
+            }
+        }
+        return this;
+    }
+    public boolean isActiveSelf() {
+        return active;
+    }
+    // active itself and every ancestor is active
+    public boolean isActiveInHierarchy() {
+        return activeInHierarchy;
+    }
+
     public Scene getScene() {
         return scene;
     }
@@ -92,18 +144,34 @@ public class Entity extends EventEmitter {
     }
 
     public Entity clear() {
+        EntityStack stack = EntityStack.acquire();
 
-        for (int i = components.size() - 1; i >= 0; i--) {
-            components.get(i).destroy();
-        }
-        for (Entity entity: children) {
-            entity.clear();
-            entity.parent = null;
-            entity.root = entity;
-            entity.depth = 0;
-        }
+        try {
+            stack.push(this);
+
+            while (!stack.isEmpty()) {
+                Entity entity = stack.pop();
+                List<Component> components = entity.components;
+                List<Entity> children = entity.children;
 
-        children.clear();
+                for (int i = components.size() - 1; i >= 0; i--) {
+                    components.get(i).destroy();
+                }
+                for (int i = children.size() - 1; i >= 0; i--) {
+                    Entity child = children.get(i);
+
+                    child.parent = null;
+                    child.root = child;
+                    child.depth = 0;
+
+                    stack.push(child);
+                }
+
+                children.clear();
+            }
+        } finally {
+            stack.release();
+        }
 
         return this;
     }
@@ -127,15 +195,9 @@ public class Entity extends EventEmitter {
         return (T) componentHash.get(componentClass);
     }
 
-    @SuppressWarnings("unchecked")
     public <T extends Component> Entity addComponent(T component) {
         if (!componentHash.containsKey(component.getClass())) {
-            Component c = (Component) component;
-
-            c.entity = this;
-
-            components.add(c);
-            componentHash.put((Class<Component>) component.getClass(), c);
+            appendComponent(component);
 
             if (scene != null) {
                 scene.addComponent(component);
@@ -144,38 +206,42 @@ public class Entity extends EventEmitter {
         return this;
     }
     public <T extends Component> Entity removeComponent(T component) {
-        if (componentHash.containsKey(component.getClass())) {
-            Component c = (Component) component;
-
+        if (componentHash.get(component.getClass()) == component) {
             if (scene != null) {
                 scene.removeComponent(component);
             }
 
             component.entity = null;
 
-            components.remove(c);
+            components.remove(component);
             componentHash.remove(component.getClass());
         }
         return this;
     }
+    // links a component without telling the scene, Prefab appends copies to fresh entities
+    void appendComponent(Component component) {
+        component.entity = this;
+
+        components.add(component);
+        componentHash.put(component.getClass(), component);
+    }
 
     public boolean hasChild(Entity entity) {
-        return children.contains(entity);
+        return entity.parent == this;
     }
     public Entity addChild(Entity entity) {
         return addChild(entity, true);
     }
     private Entity addChild(Entity entity, boolean addToScene) {
-        if (!children.contains(entity)) {
+        if (entity.parent != this) {
             if (entity.parent != null) {
                 entity.parent.removeChild(entity);
             }
 
             children.add(entity);
             entity.parent = this;
-            entity.root = this.root;
 
-            Entity.updateDepth(entity, depth + 1);
+            Entity.updateHierarchy(entity);
 
             if (addToScene && scene != null) {
                 scene.addEntity(entity);
@@ -185,14 +251,13 @@ public class Entity extends EventEmitter {
     }
 
     public Entity removeChild(Entity entity) {
-        int index = children.indexOf(entity);
+        int index = entity.parent == this ? children.indexOf(entity) : -1;
 
         if (index != -1) {
             children.remove(index);
             entity.parent = null;
-            entity.root = entity;
 
-            Entity.updateDepth(entity, 0);
+            Entity.updateHierarchy(entity);
 
             if (scene != null) {
                 scene.removeEntity(entity);
@@ -201,14 +266,84 @@ public class Entity extends EventEmitter {
         return this;
     }
 
+    // links a freshly constructed entity under parent without addChild, Prefab sizes the lists
+    // up front and appends children and components in order
+    void prepare(Entity parent, boolean active, int childCount, int componentCount) {
+        this.active = active;
+        activeInHierarchy = active;
+
+        if (parent != null) {
+            this.parent = parent;
+            root = parent.root;
+            depth = parent.depth + 1;
+            activeInHierarchy = active && parent.activeInHierarchy;
+            parent.children.add(this);
+        }
+        if (childCount > 0) {
+            children = new ArrayList<>(childCount);
+        }
+        if (componentCount > 0) {
+            components = new ArrayList<>(componentCount);
+        }
+    }
+
     public List<Entity> getChildren() {
         return Collections.unmodifiableList(this.children);
     }
 
-    private static void updateDepth(Entity entity, int depth) {
-        entity.depth = depth;
-        for (Entity child: entity.children) {
-            Entity.updateDepth(child, depth + 1);
+    // sets depth and root for the subtree in one pre-order pass, parents before children,
+    // and lets the subtree's components know their ancestry changed
+    private static void updateHierarchy(Entity entity) {
+        EntityStack stack = EntityStack.acquire();
+        boolean wasActive = entity.activeInHierarchy;
+
+        try {
+            stack.push(entity);
+
+            while (!stack.isEmpty()) {
+                Entity current = stack.pop();
+                Entity parent = current.parent;
+
+                if (parent != null) {
+                    current.depth = parent.depth + 1;
+                    current.root = parent.root;
+                    current.activeInHierarchy = current.active && parent.activeInHierarchy;
+                } else {
+                    current.depth = 0;
+                    current.root = current;
+                    current.activeInHierarchy = current.active;
+                }
+
+                for (int i = 0, il = current.components.size(); i < il; i++) {
+                    current.components.get(i).hierarchyChanged();
+                }
+
+                stack.pushChildren(current);
+            }
+        } finally {
+            stack.release();
+        }
+
+        // the subtree's activity follows its root, so only a change at the root matters
+        if (entity.scene != null && entity.activeInHierarchy != wasActive) {
+            entity.scene.activeChanged(entity, null);
+        }
+    }
+    private static void updateActive(Entity entity) {
+        EntityStack stack = EntityStack.acquire();
+
+        try {
+            stack.push(entity);
+
+            while (!stack.isEmpty()) {
+                Entity current = stack.pop();
+                Entity parent = current.parent;
+
+                current.activeInHierarchy = current.active && (parent == null || parent.activeInHierarchy);
+                stack.pushChildren(current);
+            }
+        } finally {
+            stack.release();
         }
     }
 }
@@ -0,0 +1,123 @@
+package io.faucette.scene_graph;
+
+
+import java.util.Arrays;
+import java.util.List;
+
+
+// recycles despawned entities, with their children and components, for one kind of entity.
+// spawn and despawn go through Scene.addEntity and Scene.removeEntity, so a despawn after init
+// returns the entity to the pool when the scene flushes its removals
+public class EntityPool {
+    private final Scene scene;
+    private final Factory factory;
+    private Entity[] free;
+    private int freeCount;
+    private int createdCount;
+
+
+    public EntityPool(Scene scene, Factory factory) {
+        this.scene = scene;
+        this.factory = factory;
+        free = new Entity[16];
+        freeCount = 0;
+        createdCount = 0;
+    }
+
+    public Scene getScene() {
+        return scene;
+    }
+    public int getFreeCount() {
+        return freeCount;
+    }
+    public int getCreatedCount() {
+        return createdCount;
+    }
+
+    public EntityPool prewarm(int count) {
+        ensureCapacity(freeCount + count);
+
+        for (int i = 0; i < count; i++) {
+            free[freeCount++] = create();
+        }
+        return this;
+    }
+
+    public Entity spawn() {
+        Entity entity;
+
+        if (freeCount != 0) {
+            entity = free[--freeCount];
+            free[freeCount] = null;
+        } else {
+            entity = create();
+        }
+
+        scene.addEntity(entity);
+        return entity;
+    }
+
+    public EntityPool despawn(Entity entity) {
+        if (entity.pool == null) {
+            entity.pool = this;
+
+            Entity parent = entity.getParent();
+
+            if (parent != null) {
+                parent.removeChild(entity);
+            }
+            if (parent == null || !parent.hasScene()) {
+                scene.removeEntity(entity);
+            }
+        }
+        return this;
+    }
+
+    // called by the scene once the despawned entity and its subtree are out of the scene
+    void recycle(Entity entity) {
+        EntityStack stack = EntityStack.acquire();
+
+        entity.pool = null;
+
+        try {
+            stack.push(entity);
+
+            while (!stack.isEmpty()) {
+                Entity current = stack.pop();
+                List<Component> components = current.components;
+
+                // recycled entities get a fresh id on their next spawn and come back active
+                current.id = 0L;
+                current.uuid = null;
+                current.active = true;
+                current.activeInHierarchy = true;
+
+                for (int i = 0, il = components.size(); i < il; i++) {
+                    components.get(i).active = true;
+                    components.get(i).reset();
+                }
+                stack.pushChildren(current);
+            }
+        } finally {
+            stack.release();
+        }
+
+        ensureCapacity(freeCount + 1);
+        free[freeCount++] = entity;
+    }
+
+    private Entity create() {
+        createdCount++;
+        return factory.create();
+    }
+    private void ensureCapacity(int capacity) {
+        if (capacity > free.length) {
+            free = Arrays.copyOf(free, Math.max(capacity, free.length * 2));
+        }
+    }
+
+
+    public interface Factory {
+        Entity create();
+    }
+}
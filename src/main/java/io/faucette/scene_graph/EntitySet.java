@@ -0,0 +1,90 @@
+package io.faucette.scene_graph;
+
+
+import java.util.Arrays;
+
+
+public class EntitySet {
+    private Entity[] entities;
+    private int size;
+    private int[] indices;
+
+
+    EntitySet() {
+        entities = new Entity[16];
+        size = 0;
+        indices = new int[16];
+        Arrays.fill(indices, -1);
+    }
+
+    public int size() {
+        return size;
+    }
+    public boolean isEmpty() {
+        return size == 0;
+    }
+    public Entity get(int index) {
+        return entities[index];
+    }
+
+    public void forEach(EntityVisitor visitor) {
+        for (int i = 0; i < size; i++) {
+            visitor.visit(entities[i]);
+        }
+    }
+
+    public boolean contains(Entity entity) {
+        int slot = EntityStore.slot(entity.handle);
+        return slot >= 0 && slot < indices.length && indices[slot] != -1 && entities[indices[slot]] == entity;
+    }
+
+    boolean add(Entity entity) {
+        int slot = EntityStore.slot(entity.handle);
+
+        if (slot < 0 || contains(entity)) {
+            return false;
+        }
+        if (slot >= indices.length) {
+            int length = indices.length;
+            indices = Arrays.copyOf(indices, Math.max(slot + 1, length * 2));
+            Arrays.fill(indices, length, indices.length, -1);
+        }
+        if (size == entities.length) {
+            entities = Arrays.copyOf(entities, size * 2);
+        }
+
+        indices[slot] = size;
+        entities[size++] = entity;
+        return true;
+    }
+
+    boolean remove(Entity entity) {
+        if (!contains(entity)) {
+            return false;
+        }
+
+        int slot = EntityStore.slot(entity.handle);
+        int index = indices[slot];
+        Entity last = entities[--size];
+
+        if (last != entity) {
+            entities[index] = last;
+            indices[EntityStore.slot(last.handle)] = index;
+        }
+        entities[size] = null;
+        indices[slot] = -1;
+        return true;
+    }
+
+    void clear() {
+        for (int i = 0; i < size; i++) {
+            int slot = EntityStore.slot(entities[i].handle);
+
+            if (slot >= 0 && slot < indices.length) {
+                indices[slot] = -1;
+            }
+            entities[i] = null;
+        }
+        size = 0;
+    }
+}
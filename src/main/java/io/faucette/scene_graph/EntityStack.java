@@ -0,0 +1,68 @@
+package io.faucette.scene_graph;
+
+
+import java.util.Arrays;
+import java.util.List;
+
+
+class EntityStack {
+    private static final ThreadLocal<EntityStack> stacks = new ThreadLocal<EntityStack>() {
+        @Override
+        protected EntityStack initialValue() {
+            return new EntityStack();
+        }
+    };
+
+    private Entity[] entities;
+    private int size;
+    private boolean acquired;
+
+
+    public EntityStack() {
+        entities = new Entity[64];
+        size = 0;
+        acquired = false;
+    }
+
+    // returns this thread's stack, or a fresh one when a traversal is already
+    // using it further up the call stack
+    public static EntityStack acquire() {
+        EntityStack stack = stacks.get();
+
+        if (stack.acquired) {
+            stack = new EntityStack();
+        }
+        stack.acquired = true;
+        return stack;
+    }
+    public void release() {
+        while (size > 0) {
+            entities[--size] = null;
+        }
+        acquired = false;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void push(Entity entity) {
+        if (size == entities.length) {
+            entities = Arrays.copyOf(entities, size * 2);
+        }
+        entities[size++] = entity;
+    }
+    public void pushChildren(Entity entity) {
+        List<Entity> children = entity.children;
+
+        for (int i = children.size() - 1; i >= 0; i--) {
+            push(children.get(i));
+        }
+    }
+
+    public Entity pop() {
+        Entity entity = entities[--size];
+        entities[size] = null;
+        return entity;
+    }
+}
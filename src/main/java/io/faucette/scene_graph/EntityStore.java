@@ -0,0 +1,129 @@
+package io.faucette.scene_graph;
+
+
+import java.util.Arrays;
+
+
+class EntityStore {
+    private Entity[] entities;
+    private int[] denseSlots;
+    private int size;
+
+    private int[] slotIndices;
+    private int[] generations;
+    private int slotCount;
+
+    private int[] freeSlots;
+    private int freeCount;
+
+
+    public EntityStore(int capacity) {
+        capacity = capacity < 1 ? 1 : capacity;
+
+        entities = new Entity[capacity];
+        denseSlots = new int[capacity];
+        size = 0;
+
+        slotIndices = new int[capacity];
+        generations = new int[capacity];
+        slotCount = 0;
+
+        freeSlots = new int[capacity];
+        freeCount = 0;
+    }
+    public EntityStore() {
+        this(16);
+    }
+
+    public static long handle(int slot, int generation) {
+        return ((long) generation << 32) | (slot & 0xffffffffL);
+    }
+    public static int slot(long handle) {
+        return (int) handle;
+    }
+    public static int generation(long handle) {
+        return (int) (handle >>> 32);
+    }
+
+    public int size() {
+        return size;
+    }
+    public int slotCount() {
+        return slotCount;
+    }
+    public Entity getAt(int index) {
+        return entities[index];
+    }
+
+    public boolean contains(long handle) {
+        int slot = slot(handle);
+        return slot >= 0 && slot < slotCount && slotIndices[slot] != -1 && generations[slot] == generation(handle);
+    }
+    public Entity get(long handle) {
+        return contains(handle) ? entities[slotIndices[slot(handle)]] : null;
+    }
+
+    public long add(Entity entity) {
+        int slot;
+
+        if (freeCount > 0) {
+            slot = freeSlots[--freeCount];
+        } else {
+            slot = slotCount++;
+
+            if (slot == slotIndices.length) {
+                int capacity = slot * 2;
+                slotIndices = Arrays.copyOf(slotIndices, capacity);
+                generations = Arrays.copyOf(generations, capacity);
+                freeSlots = Arrays.copyOf(freeSlots, capacity);
+            }
+        }
+
+        if (size == entities.length) {
+            int capacity = size * 2;
+            entities = Arrays.copyOf(entities, capacity);
+            denseSlots = Arrays.copyOf(denseSlots, capacity);
+        }
+
+        entities[size] = entity;
+        denseSlots[size] = slot;
+        slotIndices[slot] = size;
+        size++;
+
+        return handle(slot, generations[slot]);
+    }
+
+    public boolean remove(long handle) {
+        if (!contains(handle)) {
+            return false;
+        }
+
+        int slot = slot(handle);
+        int index = slotIndices[slot];
+        int last = --size;
+
+        if (index != last) {
+            entities[index] = entities[last];
+            denseSlots[index] = denseSlots[last];
+            slotIndices[denseSlots[index]] = index;
+        }
+        entities[last] = null;
+
+        release(slot);
+        return true;
+    }
+
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            entities[i] = null;
+            release(denseSlots[i]);
+        }
+        size = 0;
+    }
+
+    private void release(int slot) {
+        slotIndices[slot] = -1;
+        generations[slot]++;
+        freeSlots[freeCount++] = slot;
+    }
+}
@@ -0,0 +1,6 @@
+package io.faucette.scene_graph;
+
+
+public interface EntityVisitor {
+    void visit(Entity entity);
+}
@@ -0,0 +1,40 @@
+package io.faucette.scene_graph;
+
+
+// base class of events sent through an EventChannel. events are pooled by their channel, so a
+// listener must copy what it needs instead of keeping the event
+public class Event {
+    Entity target;
+    Entity currentTarget;
+    boolean propagationStopped;
+
+
+    public Event() {
+        target = null;
+        currentTarget = null;
+        propagationStopped = false;
+    }
+
+    // the entity the event was queued for, null for scene wide events
+    public Entity getTarget() {
+        return target;
+    }
+    // the entity whose listeners are running, null while the channel's own listeners run
+    public Entity getCurrentTarget() {
+        return currentTarget;
+    }
+
+    // no listeners further up the hierarchy, or on the channel itself, see this event
+    public Event stopPropagation() {
+        propagationStopped = true;
+        return this;
+    }
+    public boolean isPropagationStopped() {
+        return propagationStopped;
+    }
+
+    // called when the channel takes the event back after dispatch, drop references to other objects
+    public Event reset() {
+        return this;
+    }
+}
@@ -0,0 +1,230 @@
+package io.faucette.scene_graph;
+
+
+import java.lang.reflect.Array;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+
+// a queue of one event type. queue hands out a pooled event to fill in and the scene delivers
+// the batch at fixed points in Scene.update, right after structural changes are applied and
+// after all updates. events queued while a batch is delivered wait for the next point.
+//
+// an event goes to the listeners of its target, then, if the channel bubbles, of each ancestor
+// up to the root, then to the channel's own listeners, until one stops its propagation.
+// queue is safe from parallel component updates, listeners are added, removed and run on the
+// scene's thread
+public class EventChannel<T extends Event> {
+    private final Class<T> type;
+    private final Factory<T> factory;
+    private boolean bubbles;
+
+    private T[] queued;
+    private int queuedCount;
+    private T[] dispatching;
+    private boolean isDispatching;
+
+    private EventListener<T>[] listeners;
+    private final Map<Entity, EventListener<T>[]> entityListeners;
+
+
+    @SuppressWarnings("unchecked")
+    public EventChannel(Class<T> type, Factory<T> factory) {
+        this.type = type;
+        this.factory = factory;
+        bubbles = false;
+
+        queued = (T[]) Array.newInstance(type, 0);
+        queuedCount = 0;
+        dispatching = (T[]) Array.newInstance(type, 0);
+        isDispatching = false;
+
+        listeners = new EventListener[0];
+        entityListeners = new IdentityHashMap<>();
+    }
+
+    public Class<T> getType() {
+        return type;
+    }
+
+    public EventChannel<T> setBubbles(boolean bubbles) {
+        this.bubbles = bubbles;
+        return this;
+    }
+    public boolean getBubbles() {
+        return bubbles;
+    }
+
+    // preallocates events so the first frames do not grow the pool
+    public synchronized EventChannel<T> prewarm(int count) {
+        queued = ensureCapacity(queued, count);
+        dispatching = ensureCapacity(dispatching, count);
+        return this;
+    }
+    public synchronized int getQueuedCount() {
+        return queuedCount;
+    }
+
+    // a pooled event for the target to fill in, valid until it is delivered
+    public synchronized T queue(Entity target) {
+        if (queuedCount == queued.length) {
+            queued = ensureCapacity(queued, Math.max(16, queuedCount * 2));
+        }
+
+        T event = queued[queuedCount++];
+        event.target = target;
+        return event;
+    }
+    // a scene wide event, only the channel's own listeners see it
+    public T queue() {
+        return queue(null);
+    }
+
+    public EventChannel<T> addListener(EventListener<T> listener) {
+        listeners = add(listeners, listener);
+        return this;
+    }
+    public EventChannel<T> removeListener(EventListener<T> listener) {
+        listeners = remove(listeners, listener);
+        return this;
+    }
+    // the entity's listeners are kept until removed, even when it leaves the scene
+    @SuppressWarnings("unchecked")
+    public EventChannel<T> addListener(Entity entity, EventListener<T> listener) {
+        EventListener<T>[] current = entityListeners.get(entity);
+
+        if (current == null) {
+            current = new EventListener[0];
+        }
+        entityListeners.put(entity, add(current, listener));
+        return this;
+    }
+    public EventChannel<T> removeListener(Entity entity, EventListener<T> listener) {
+        EventListener<T>[] current = entityListeners.get(entity);
+
+        if (current != null) {
+            current = remove(current, listener);
+
+            if (current.length == 0) {
+                entityListeners.remove(entity);
+            } else {
+                entityListeners.put(entity, current);
+            }
+        }
+        return this;
+    }
+    public EventChannel<T> removeListeners(Entity entity) {
+        entityListeners.remove(entity);
+        return this;
+    }
+
+    // delivers everything queued so far, called by Scene.update
+    public EventChannel<T> dispatch() {
+        T[] batch;
+        int count;
+
+        synchronized (this) {
+            if (queuedCount == 0 || isDispatching) {
+                return this;
+            }
+            // swap the two pools so listeners can queue into the other one while this batch runs
+            batch = queued;
+            count = queuedCount;
+            queued = dispatching;
+            queuedCount = 0;
+            dispatching = batch;
+            isDispatching = true;
+        }
+
+        try {
+            boolean hasEntityListeners = !entityListeners.isEmpty();
+
+            for (int i = 0; i < count; i++) {
+                T event = batch[i];
+
+                if (hasEntityListeners) {
+                    Entity current = event.target;
+
+                    while (current != null && !event.propagationStopped) {
+                        EventListener<T>[] targetListeners = entityListeners.get(current);
+
+                        if (targetListeners != null) {
+                            event.currentTarget = current;
+                            call(targetListeners, event);
+                        }
+                        current = bubbles ? current.getParent() : null;
+                    }
+                    event.currentTarget = null;
+                }
+                if (!event.propagationStopped) {
+                    call(listeners, event);
+                }
+
+                event.target = null;
+                event.currentTarget = null;
+                event.propagationStopped = false;
+                event.reset();
+            }
+        } finally {
+            synchronized (this) {
+                isDispatching = false;
+            }
+        }
+        return this;
+    }
+
+    // drops queued events without delivering them
+    public synchronized EventChannel<T> clear() {
+        for (int i = 0; i < queuedCount; i++) {
+            T event = queued[i];
+
+            event.target = null;
+            event.currentTarget = null;
+            event.propagationStopped = false;
+            event.reset();
+        }
+        queuedCount = 0;
+        return this;
+    }
+
+    private void call(EventListener<T>[] listeners, T event) {
+        for (int i = 0; i < listeners.length && !event.propagationStopped; i++) {
+            listeners[i].onEvent(event);
+        }
+    }
+
+    // grows a pool, the only place events are allocated
+    private T[] ensureCapacity(T[] events, int capacity) {
+        if (events.length < capacity) {
+            int size = events.length;
+
+            events = Arrays.copyOf(events, capacity);
+            for (int i = size; i < capacity; i++) {
+                events[i] = factory.create();
+            }
+        }
+        return events;
+    }
+
+    private EventListener<T>[] add(EventListener<T>[] listeners, EventListener<T> listener) {
+        EventListener<T>[] next = Arrays.copyOf(listeners, listeners.length + 1);
+        next[listeners.length] = listener;
+        return next;
+    }
+    private EventListener<T>[] remove(EventListener<T>[] listeners, EventListener<T> listener) {
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i] == listener) {
+                EventListener<T>[] next = Arrays.copyOf(listeners, listeners.length - 1);
+                System.arraycopy(listeners, i + 1, next, i, listeners.length - i - 1);
+                return next;
+            }
+        }
+        return listeners;
+    }
+
+
+    public interface Factory<T extends Event> {
+        T create();
+    }
+}
@@ -0,0 +1,6 @@
+package io.faucette.scene_graph;
+
+
+public interface EventListener<T extends Event> {
+    void onEvent(T event);
+}
@@ -0,0 +1,321 @@
+package io.faucette.scene_graph;
+
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+
+// set on a Scene with setProfiler, records wall time per plugin and component manager,
+// the structural flush and the number of structural changes for the last `capacity` frames
+public class FrameProfiler implements FrameProfilerMBean {
+    public static final String DOMAIN = "io.faucette.scene_graph";
+
+    private final int capacity;
+    private final Samples frames;
+    private final Samples flushes;
+    private final Samples structuralChanges;
+    private final ConcurrentMap<Class<?>, Samples> systemSamples;
+    private volatile Samples[] systems;
+
+    private long slowFrameThreshold;
+    private volatile long slowFrameCount;
+    private SlowFrameListener slowFrameListener;
+
+    private ObjectName objectName;
+
+
+    public FrameProfiler() {
+        this(512);
+    }
+    public FrameProfiler(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least 1");
+        }
+
+        this.capacity = capacity;
+        frames = new Samples("frame", capacity);
+        flushes = new Samples("flush", capacity);
+        structuralChanges = new Samples("structuralChanges", capacity);
+        systemSamples = new ConcurrentHashMap<>();
+        systems = new Samples[0];
+
+        slowFrameThreshold = 0L;
+        slowFrameCount = 0L;
+        slowFrameListener = null;
+
+        objectName = null;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public Samples getFrameSamples() {
+        return frames;
+    }
+    public Samples getFlushSamples() {
+        return flushes;
+    }
+    // counts, not nanoseconds
+    public Samples getStructuralChangeSamples() {
+        return structuralChanges;
+    }
+    public Samples getSamples(Class<?> systemClass) {
+        return systemSamples.get(systemClass);
+    }
+    public Samples[] getSystemSamples() {
+        return systems.clone();
+    }
+
+    // 0 disables the slow frame callback
+    public FrameProfiler setSlowFrameThreshold(long nanos) {
+        slowFrameThreshold = nanos;
+        return this;
+    }
+    public long getSlowFrameThreshold() {
+        return slowFrameThreshold;
+    }
+    public FrameProfiler setSlowFrameListener(SlowFrameListener listener) {
+        slowFrameListener = listener;
+        return this;
+    }
+    public SlowFrameListener getSlowFrameListener() {
+        return slowFrameListener;
+    }
+
+    // each system is only ever timed by one thread at a time, so the pending sum needs no lock
+    void record(Class<?> systemClass, long nanos) {
+        Samples samples = systemSamples.get(systemClass);
+
+        if (samples == null) {
+            samples = addSystem(systemClass);
+        }
+        samples.pending += nanos;
+        samples.recorded = true;
+    }
+    // systems that did not run this frame get no sample rather than a 0
+    void endFrame(long frameNanos, long flushNanos, int structuralChangeCount) {
+        Samples[] systems = this.systems;
+
+        for (int i = 0, il = systems.length; i < il; i++) {
+            Samples samples = systems[i];
+
+            if (samples.recorded) {
+                samples.add(samples.pending);
+                samples.pending = 0L;
+                samples.recorded = false;
+            }
+        }
+
+        frames.add(frameNanos);
+        flushes.add(flushNanos);
+        structuralChanges.add(structuralChangeCount);
+
+        if (slowFrameThreshold > 0L && frameNanos >= slowFrameThreshold) {
+            slowFrameCount++;
+
+            if (slowFrameListener != null) {
+                slowFrameListener.onSlowFrame(this, frameNanos);
+            }
+        }
+    }
+
+    private synchronized Samples addSystem(Class<?> systemClass) {
+        Samples samples = systemSamples.get(systemClass);
+
+        if (samples == null) {
+            samples = new Samples(systemClass.getName(), capacity);
+            Samples[] next = Arrays.copyOf(systems, systems.length + 1);
+            next[systems.length] = samples;
+            systems = next;
+            systemSamples.put(systemClass, samples);
+        }
+        return samples;
+    }
+
+    // called when the scene drops a plugin or component manager
+    synchronized void removeSystem(Class<?> systemClass) {
+        Samples samples = systemSamples.remove(systemClass);
+
+        if (samples != null) {
+            Samples[] next = new Samples[systems.length - 1];
+
+            for (int i = 0, j = 0, il = systems.length; i < il; i++) {
+                if (systems[i] != samples) {
+                    next[j++] = systems[i];
+                }
+            }
+            systems = next;
+        }
+    }
+
+    public synchronized FrameProfiler register(String name) {
+        unregister();
+
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(DOMAIN + ":type=FrameProfiler,name=" + ObjectName.quote(name));
+            server.registerMBean(this, objectName);
+            this.objectName = objectName;
+        } catch (JMException e) {
+            throw new IllegalStateException("failed to register FrameProfiler " + name, e);
+        }
+        return this;
+    }
+    public synchronized FrameProfiler unregister() {
+        if (objectName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+            } catch (JMException e) {
+                throw new IllegalStateException("failed to unregister FrameProfiler " + objectName, e);
+            } finally {
+                objectName = null;
+            }
+        }
+        return this;
+    }
+
+    @Override
+    public long getFrameCount() {
+        return frames.getTotalCount();
+    }
+    @Override
+    public long getSlowFrameCount() {
+        return slowFrameCount;
+    }
+    @Override
+    public double getFrameP50Millis() {
+        return toMillis(frames.getPercentile(0.5d));
+    }
+    @Override
+    public double getFrameP99Millis() {
+        return toMillis(frames.getPercentile(0.99d));
+    }
+    @Override
+    public double getFrameMaxMillis() {
+        return toMillis(frames.getMax());
+    }
+    @Override
+    public double getFlushP99Millis() {
+        return toMillis(flushes.getPercentile(0.99d));
+    }
+    @Override
+    public long getStructuralChangesP99() {
+        return structuralChanges.getPercentile(0.99d);
+    }
+    @Override
+    public String[] getSystemNames() {
+        Samples[] systems = this.systems;
+        String[] names = new String[systems.length];
+
+        for (int i = 0; i < names.length; i++) {
+            names[i] = systems[i].getName();
+        }
+        return names;
+    }
+    @Override
+    public double getSystemP50Millis(String name) {
+        Samples samples = findSystem(name);
+        return samples == null ? 0d : toMillis(samples.getPercentile(0.5d));
+    }
+    @Override
+    public double getSystemP99Millis(String name) {
+        Samples samples = findSystem(name);
+        return samples == null ? 0d : toMillis(samples.getPercentile(0.99d));
+    }
+    @Override
+    public double getSystemMaxMillis(String name) {
+        Samples samples = findSystem(name);
+        return samples == null ? 0d : toMillis(samples.getMax());
+    }
+
+    private Samples findSystem(String name) {
+        for (Samples samples: systems) {
+            if (samples.getName().equals(name)) {
+                return samples;
+            }
+        }
+        return null;
+    }
+    private static double toMillis(long nanos) {
+        return nanos / 1e6d;
+    }
+
+
+    public interface SlowFrameListener {
+        void onSlowFrame(FrameProfiler profiler, long frameNanos);
+    }
+
+    // fixed size ring of the last `capacity` samples, percentiles sort a preallocated copy
+    public static final class Samples {
+        private final String name;
+        private final long[] ring;
+        private final long[] scratch;
+        private int next;
+        private int count;
+        private long totalCount;
+        long pending;
+        boolean recorded;
+
+
+        Samples(String name, int capacity) {
+            this.name = name;
+            ring = new long[capacity];
+            scratch = new long[capacity];
+            next = 0;
+            count = 0;
+            totalCount = 0L;
+            pending = 0L;
+            recorded = false;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        synchronized void add(long value) {
+            ring[next] = value;
+            next = next + 1 == ring.length ? 0 : next + 1;
+            if (count < ring.length) {
+                count++;
+            }
+            totalCount++;
+        }
+
+        public synchronized int getCount() {
+            return count;
+        }
+        public synchronized long getTotalCount() {
+            return totalCount;
+        }
+        public synchronized long getLast() {
+            return count == 0 ? 0L : ring[next == 0 ? ring.length - 1 : next - 1];
+        }
+        public synchronized long getMax() {
+            long max = 0L;
+
+            for (int i = 0; i < count; i++) {
+                max = Math.max(max, ring[i]);
+            }
+            return max;
+        }
+        // nearest rank, percentile in [0, 1]
+        public synchronized long getPercentile(double percentile) {
+            if (count == 0) {
+                return 0L;
+            }
+
+            System.arraycopy(ring, 0, scratch, 0, count);
+            Arrays.sort(scratch, 0, count);
+
+            int rank = (int) Math.ceil(percentile * count) - 1;
+            return scratch[rank < 0 ? 0 : rank >= count ? count - 1 : rank];
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package io.faucette.scene_graph;
+
+
+public interface FrameProfilerMBean {
+    long getFrameCount();
+    long getSlowFrameCount();
+
+    double getFrameP50Millis();
+    double getFrameP99Millis();
+    double getFrameMaxMillis();
+    double getFlushP99Millis();
+    long getStructuralChangesP99();
+
+    String[] getSystemNames();
+    double getSystemP50Millis(String name);
+    double getSystemP99Millis(String name);
+    double getSystemMaxMillis(String name);
+}
@@ -0,0 +1,262 @@
+package io.faucette.scene_graph;
+
+
+import java.util.Arrays;
+
+
+// uniform grid of cubic cells hashed into an open addressing table, so only occupied cells
+// cost memory and the world has no fixed bounds, cell coordinates wrap every 2^21 cells per
+// axis which only adds candidates. items in a cell form a doubly linked list
+public class GridPartition extends SpatialPartition {
+    private static final long EMPTY = -1L;
+    private static final int AXIS_BITS = 21;
+    private static final long AXIS_MASK = (1L << AXIS_BITS) - 1L;
+
+    private final float cellSize;
+    private final float inverseCellSize;
+
+    private long[] keys;
+    private int[] heads;
+    private int cellCount;
+    private int mask;
+
+    private long[] itemCells;
+    private int[] next;
+    private int[] previous;
+
+
+    public GridPartition(float cellSize) {
+        if (cellSize <= 0f) {
+            throw new IllegalArgumentException("cellSize must be positive");
+        }
+
+        this.cellSize = cellSize;
+        inverseCellSize = 1f / cellSize;
+
+        keys = new long[64];
+        heads = new int[64];
+        Arrays.fill(keys, EMPTY);
+        cellCount = 0;
+        mask = keys.length - 1;
+
+        itemCells = new long[0];
+        next = new int[0];
+        previous = new int[0];
+    }
+
+    public float getCellSize() {
+        return cellSize;
+    }
+    public int getCellCount() {
+        return cellCount;
+    }
+
+    @Override
+    void ensureCapacity(int itemCapacity) {
+        if (itemCells.length < itemCapacity) {
+            itemCells = Arrays.copyOf(itemCells, itemCapacity);
+            next = Arrays.copyOf(next, itemCapacity);
+            previous = Arrays.copyOf(previous, itemCapacity);
+        }
+    }
+
+    @Override
+    void insert(int item, float x, float y, float z) {
+        link(item, key(cell(x), cell(y), cell(z)));
+    }
+    @Override
+    void remove(int item) {
+        unlink(item);
+    }
+    @Override
+    void move(int item, float x, float y, float z) {
+        long key = key(cell(x), cell(y), cell(z));
+
+        if (itemCells[item] != key) {
+            unlink(item);
+            link(item, key);
+        }
+    }
+    @Override
+    void clear() {
+        Arrays.fill(keys, EMPTY);
+        cellCount = 0;
+    }
+
+    @Override
+    void query(float minX, float minY, float minZ, float maxX, float maxY, float maxZ, SpatialResults results) {
+        int minCellX = cell(minX);
+        int minCellY = cell(minY);
+        int minCellZ = cell(minZ);
+        int maxCellX = cell(maxX);
+        int maxCellY = cell(maxY);
+        int maxCellZ = cell(maxZ);
+        long volume = ((long) maxCellX - minCellX + 1L) * ((long) maxCellY - minCellY + 1L) * ((long) maxCellZ - minCellZ + 1L);
+
+        // a box covering more cells than are occupied is cheaper to answer from the table
+        if (volume > cellCount) {
+            for (int slot = 0; slot < keys.length; slot++) {
+                long key = keys[slot];
+
+                if (key != EMPTY &&
+                    inRange(axis(key, 0), minCellX, maxCellX) &&
+                    inRange(axis(key, 1), minCellY, maxCellY) &&
+                    inRange(axis(key, 2), minCellZ, maxCellZ)) {
+                    testCell(heads[slot], results);
+                }
+            }
+        } else {
+            for (int cz = minCellZ; cz <= maxCellZ; cz++) {
+                for (int cy = minCellY; cy <= maxCellY; cy++) {
+                    for (int cx = minCellX; cx <= maxCellX; cx++) {
+                        int slot = find(key(cx, cy, cz));
+
+                        if (slot != -1) {
+                            testCell(heads[slot], results);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    float getSearchRadius() {
+        return cellSize;
+    }
+
+    private void testCell(int item, SpatialResults results) {
+        while (item != -1) {
+            index.test(item, results);
+            item = next[item];
+        }
+    }
+
+    private void link(int item, long key) {
+        int slot = find(key);
+
+        if (slot == -1) {
+            slot = addCell(key);
+        }
+
+        int head = heads[slot];
+        itemCells[item] = key;
+        previous[item] = -1;
+        next[item] = head;
+        if (head != -1) {
+            previous[head] = item;
+        }
+        heads[slot] = item;
+    }
+    private void unlink(int item) {
+        int before = previous[item];
+        int after = next[item];
+
+        if (after != -1) {
+            previous[after] = before;
+        }
+        if (before != -1) {
+            next[before] = after;
+        } else {
+            int slot = find(itemCells[item]);
+
+            if (after != -1) {
+                heads[slot] = after;
+            } else {
+                removeCell(slot);
+            }
+        }
+    }
+
+    private int find(long key) {
+        int slot = hash(key);
+
+        while (true) {
+            long current = keys[slot];
+
+            if (current == key) {
+                return slot;
+            }
+            if (current == EMPTY) {
+                return -1;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+    private int addCell(long key) {
+        if ((cellCount + 1) * 2 > keys.length) {
+            resize(keys.length * 2);
+        }
+
+        int slot = hash(key);
+        while (keys[slot] != EMPTY) {
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        heads[slot] = -1;
+        cellCount++;
+        return slot;
+    }
+    // backward shift deletion, same as LongMap
+    private void removeCell(int slot) {
+        int gap = slot;
+        int current = (slot + 1) & mask;
+
+        while (keys[current] != EMPTY) {
+            int home = hash(keys[current]);
+
+            if (((current - home) & mask) >= ((current - gap) & mask)) {
+                keys[gap] = keys[current];
+                heads[gap] = heads[current];
+                gap = current;
+            }
+            current = (current + 1) & mask;
+        }
+
+        keys[gap] = EMPTY;
+        cellCount--;
+    }
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldHeads = heads;
+
+        keys = new long[capacity];
+        heads = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+        mask = capacity - 1;
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            long key = oldKeys[i];
+
+            if (key != EMPTY) {
+                int slot = hash(key);
+                while (keys[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+                heads[slot] = oldHeads[i];
+            }
+        }
+    }
+
+    private int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+    private int cell(float value) {
+        return (int) Math.floor(value * inverseCellSize);
+    }
+    private static long key(int cx, int cy, int cz) {
+        return (cx & AXIS_MASK) | ((cy & AXIS_MASK) << AXIS_BITS) | ((cz & AXIS_MASK) << (AXIS_BITS * 2));
+    }
+    // one wrapped 21 bit axis of a key
+    private static long axis(long key, int axis) {
+        return (key >>> (AXIS_BITS * axis)) & AXIS_MASK;
+    }
+    // compares in wrapped space like the cell loop does, the wrapped value is in range when its
+    // distance above the wrapped min fits in the span
+    private static boolean inRange(long value, int min, int max) {
+        long span = (long) max - min;
+        return span >= AXIS_MASK || ((value - min) & AXIS_MASK) <= span;
+    }
+}
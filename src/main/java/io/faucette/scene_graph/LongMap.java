@@ -0,0 +1,138 @@
+package io.faucette.scene_graph;
+
+
+import java.util.Arrays;
+
+
+class LongMap<V> {
+    private long[] keys;
+    private Object[] values;
+    private int size;
+    private int mask;
+
+
+    public LongMap(int capacity) {
+        int length = Integer.highestOneBit(Math.max(capacity, 8) - 1) << 1;
+
+        keys = new long[length];
+        values = new Object[length];
+        size = 0;
+        mask = length - 1;
+    }
+    public LongMap() {
+        this(16);
+    }
+
+    public int size() {
+        return size;
+    }
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        if (key == 0L) {
+            return null;
+        }
+        for (int i = index(key); ; i = (i + 1) & mask) {
+            long k = keys[i];
+
+            if (k == key) {
+                return (V) values[i];
+            } else if (k == 0L) {
+                return null;
+            }
+        }
+    }
+
+    public void put(long key, V value) {
+        if (key == 0L) {
+            throw new IllegalArgumentException("0 is not a valid key");
+        }
+        if ((size + 1) * 4 > keys.length * 3) {
+            resize(keys.length * 2);
+        }
+
+        int i = index(key);
+        while (keys[i] != 0L && keys[i] != key) {
+            i = (i + 1) & mask;
+        }
+        if (keys[i] == 0L) {
+            keys[i] = key;
+            size++;
+        }
+        values[i] = value;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        if (key == 0L) {
+            return null;
+        }
+
+        int i = index(key);
+        while (keys[i] != key) {
+            if (keys[i] == 0L) {
+                return null;
+            }
+            i = (i + 1) & mask;
+        }
+
+        V value = (V) values[i];
+        size--;
+
+        // shift the following entries of the probe sequence back into the hole
+        int hole = i;
+        for (int j = (hole + 1) & mask; keys[j] != 0L; j = (j + 1) & mask) {
+            int home = index(keys[j]);
+
+            if (((j - home) & mask) >= ((j - hole) & mask)) {
+                keys[hole] = keys[j];
+                values[hole] = values[j];
+                hole = j;
+            }
+        }
+        keys[hole] = 0L;
+        values[hole] = null;
+
+        return value;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0L);
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    private int index(long key) {
+        long hash = key * 0x9e3779b97f4a7c15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private void resize(int length) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+
+        keys = new long[length];
+        values = new Object[length];
+        mask = length - 1;
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            long key = oldKeys[i];
+
+            if (key != 0L) {
+                int j = index(key);
+                while (keys[j] != 0L) {
+                    j = (j + 1) & mask;
+                }
+                keys[j] = key;
+                values[j] = oldValues[i];
+            }
+        }
+    }
+}
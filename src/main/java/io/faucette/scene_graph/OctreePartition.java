@@ -0,0 +1,250 @@
+package io.faucette.scene_graph;
+
+
+import java.util.Arrays;
+
+
+// point octree over fixed bounds, a leaf splits into eight when it holds more than leafCapacity
+// items and is above maxDepth. items outside the bounds are kept on the root. nodes live in
+// flat arrays and a node's eight children are allocated together
+public class OctreePartition extends SpatialPartition {
+    private final int maxDepth;
+    private final int leafCapacity;
+
+    private float[] nodeX;
+    private float[] nodeY;
+    private float[] nodeZ;
+    private float[] nodeHalf;
+    private int[] nodeDepth;
+    private int[] nodeChildren;
+    private int[] nodeHeads;
+    private int[] nodeCounts;
+    private int nodeCount;
+
+    private int[] itemNodes;
+    private int[] next;
+    private int[] previous;
+
+
+    public OctreePartition(float centerX, float centerY, float centerZ, float halfSize, int maxDepth, int leafCapacity) {
+        if (halfSize <= 0f) {
+            throw new IllegalArgumentException("halfSize must be positive");
+        }
+
+        this.maxDepth = maxDepth;
+        this.leafCapacity = Math.max(1, leafCapacity);
+
+        nodeX = new float[64];
+        nodeY = new float[64];
+        nodeZ = new float[64];
+        nodeHalf = new float[64];
+        nodeDepth = new int[64];
+        nodeChildren = new int[64];
+        nodeHeads = new int[64];
+        nodeCounts = new int[64];
+        nodeCount = 0;
+
+        itemNodes = new int[0];
+        next = new int[0];
+        previous = new int[0];
+
+        addNode(centerX, centerY, centerZ, halfSize, 0);
+    }
+    public OctreePartition(float halfSize) {
+        this(0f, 0f, 0f, halfSize, 8, 8);
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    @Override
+    void ensureCapacity(int itemCapacity) {
+        if (itemNodes.length < itemCapacity) {
+            itemNodes = Arrays.copyOf(itemNodes, itemCapacity);
+            next = Arrays.copyOf(next, itemCapacity);
+            previous = Arrays.copyOf(previous, itemCapacity);
+        }
+    }
+
+    @Override
+    void insert(int item, float x, float y, float z) {
+        int node = 0;
+
+        if (contains(0, x, y, z)) {
+            while (nodeChildren[node] != -1) {
+                node = nodeChildren[node] + octant(node, x, y, z);
+            }
+        }
+
+        link(item, node);
+
+        if (node != 0 || nodeChildren[0] == -1) {
+            if (nodeCounts[node] > leafCapacity && nodeDepth[node] < maxDepth) {
+                split(node);
+            }
+        }
+    }
+    @Override
+    void remove(int item) {
+        unlink(item);
+    }
+    @Override
+    void move(int item, float x, float y, float z) {
+        int node = itemNodes[item];
+
+        // still inside its leaf
+        if (nodeChildren[node] == -1 && contains(node, x, y, z)) {
+            return;
+        }
+        unlink(item);
+        insert(item, x, y, z);
+    }
+    @Override
+    void clear() {
+        float x = nodeX[0];
+        float y = nodeY[0];
+        float z = nodeZ[0];
+        float half = nodeHalf[0];
+
+        nodeCount = 0;
+        addNode(x, y, z, half, 0);
+    }
+
+    @Override
+    void query(float minX, float minY, float minZ, float maxX, float maxY, float maxZ, SpatialResults results) {
+        int[] stack = results.stack(maxDepth * 8 + 8);
+        int size = 0;
+
+        stack[size++] = 0;
+
+        while (size > 0) {
+            int node = stack[--size];
+
+            // the root also holds items outside the bounds, so it is always tested
+            if (node != 0) {
+                float half = nodeHalf[node];
+
+                if (nodeX[node] + half < minX || nodeX[node] - half > maxX ||
+                    nodeY[node] + half < minY || nodeY[node] - half > maxY ||
+                    nodeZ[node] + half < minZ || nodeZ[node] - half > maxZ) {
+                    continue;
+                }
+            }
+
+            for (int item = nodeHeads[node]; item != -1; item = next[item]) {
+                index.test(item, results);
+            }
+
+            int children = nodeChildren[node];
+            if (children != -1) {
+                for (int i = 0; i < 8; i++) {
+                    stack[size++] = children + i;
+                }
+            }
+        }
+    }
+
+    @Override
+    float getSearchRadius() {
+        return nodeHalf[0] / (1 << Math.min(maxDepth, 4));
+    }
+
+    private void split(int node) {
+        float half = nodeHalf[node] * 0.5f;
+        int depth = nodeDepth[node] + 1;
+        int children = nodeCount;
+
+        for (int i = 0; i < 8; i++) {
+            addNode(
+                nodeX[node] + ((i & 1) != 0 ? half : -half),
+                nodeY[node] + ((i & 2) != 0 ? half : -half),
+                nodeZ[node] + ((i & 4) != 0 ? half : -half),
+                half, depth
+            );
+        }
+        nodeChildren[node] = children;
+
+        int item = nodeHeads[node];
+        nodeHeads[node] = -1;
+        nodeCounts[node] = 0;
+
+        while (item != -1) {
+            int following = next[item];
+            float x = index.getX(item);
+            float y = index.getY(item);
+            float z = index.getZ(item);
+
+            if (node == 0 && !contains(0, x, y, z)) {
+                link(item, 0);
+            } else {
+                link(item, children + octant(node, x, y, z));
+            }
+            item = following;
+        }
+    }
+
+    private int addNode(float x, float y, float z, float half, int depth) {
+        if (nodeCount == nodeX.length) {
+            int capacity = nodeCount * 2;
+            nodeX = Arrays.copyOf(nodeX, capacity);
+            nodeY = Arrays.copyOf(nodeY, capacity);
+            nodeZ = Arrays.copyOf(nodeZ, capacity);
+            nodeHalf = Arrays.copyOf(nodeHalf, capacity);
+            nodeDepth = Arrays.copyOf(nodeDepth, capacity);
+            nodeChildren = Arrays.copyOf(nodeChildren, capacity);
+            nodeHeads = Arrays.copyOf(nodeHeads, capacity);
+            nodeCounts = Arrays.copyOf(nodeCounts, capacity);
+        }
+
+        int node = nodeCount++;
+        nodeX[node] = x;
+        nodeY[node] = y;
+        nodeZ[node] = z;
+        nodeHalf[node] = half;
+        nodeDepth[node] = depth;
+        nodeChildren[node] = -1;
+        nodeHeads[node] = -1;
+        nodeCounts[node] = 0;
+        return node;
+    }
+
+    private void link(int item, int node) {
+        int head = nodeHeads[node];
+
+        itemNodes[item] = node;
+        previous[item] = -1;
+        next[item] = head;
+        if (head != -1) {
+            previous[head] = item;
+        }
+        nodeHeads[node] = item;
+        nodeCounts[node]++;
+    }
+    private void unlink(int item) {
+        int node = itemNodes[item];
+        int before = previous[item];
+        int after = next[item];
+
+        if (after != -1) {
+            previous[after] = before;
+        }
+        if (before != -1) {
+            next[before] = after;
+        } else {
+            nodeHeads[node] = after;
+        }
+        nodeCounts[node]--;
+    }
+
+    private boolean contains(int node, float x, float y, float z) {
+        float half = nodeHalf[node];
+
+        return x >= nodeX[node] - half && x <= nodeX[node] + half &&
+            y >= nodeY[node] - half && y <= nodeY[node] + half &&
+            z >= nodeZ[node] - half && z <= nodeZ[node] + half;
+    }
+    private int octant(int node, float x, float y, float z) {
+        return (x >= nodeX[node] ? 1 : 0) | (y >= nodeY[node] ? 2 : 0) | (z >= nodeZ[node] ? 4 : 0);
+    }
+}
@@ -5,16 +5,27 @@ import io.faucette.event_emitter.EventEmitter;
 
 public class Plugin extends EventEmitter {
     protected Scene scene;
+    final Access access;
 
 
     public Plugin() {
         scene = null;
+        access = new Access();
     }
 
     public int getOrder() {
         return 0;
     }
 
+    protected Plugin declareRead(Class<? extends Component> componentClass) {
+        access.read(componentClass);
+        return this;
+    }
+    protected Plugin declareWrite(Class<? extends Component> componentClass) {
+        access.write(componentClass);
+        return this;
+    }
+
     public Scene getScene() {
         return scene;
     }
@@ -25,9 +36,25 @@ public class Plugin extends EventEmitter {
     public Plugin clear() {
         return this;
     }
+    // called on the scene's thread each frame after queued structural changes are applied and
+    // before any update, the one place a plugin may add and remove entities directly
+    public Plugin preUpdate() {
+        return this;
+    }
     public Plugin update() {
         return this;
     }
+    public Plugin fixedUpdate() {
+        return this;
+    }
+
+    // called after a component joins or leaves one of the scene's component managers
+    public Plugin componentAdded(Component component) {
+        return this;
+    }
+    public Plugin componentRemoved(Component component) {
+        return this;
+    }
 
     public Plugin destroy() {
         if (scene != null) {
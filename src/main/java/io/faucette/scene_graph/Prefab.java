@@ -0,0 +1,169 @@
+package io.faucette.scene_graph;
+
+
+import java.util.ArrayList;
+import java.util.List;
+
+
+// a template captured from an entity subtree. instantiate builds copies of it with their
+// lists sized up front and hands each batch to the scene in one command, which resolves the
+// component managers once per batch instead of once per component.
+//
+// the template is copied at capture, later changes to the source subtree do not show up in
+// instances. every component class in the subtree needs a ComponentCopier
+public class Prefab {
+    private final int entityCount;
+    private final int[] parents;
+    private final int[] childCounts;
+    private final String[] names;
+    private final String[] tags;
+    private final boolean[] actives;
+    private final int[] componentStarts;
+    private final Component[] templates;
+    private final ComponentCopier<Component>[] copiers;
+
+
+    @SuppressWarnings("unchecked")
+    public Prefab(Entity root, ComponentCopiers componentCopiers) {
+        List<Entity> order = new ArrayList<>();
+        List<Component> components = new ArrayList<>();
+
+        // breadth first, parents come before their children and siblings stay together
+        order.add(root);
+        for (int i = 0; i < order.size(); i++) {
+            order.addAll(order.get(i).children);
+        }
+
+        entityCount = order.size();
+        parents = new int[entityCount];
+        childCounts = new int[entityCount];
+        names = new String[entityCount];
+        tags = new String[entityCount];
+        actives = new boolean[entityCount];
+        componentStarts = new int[entityCount + 1];
+
+        int next = 1;
+        for (int i = 0; i < entityCount; i++) {
+            Entity entity = order.get(i);
+            int childCount = entity.children.size();
+
+            if (i == 0) {
+                parents[i] = -1;
+            }
+            for (int j = 0; j < childCount; j++) {
+                parents[next++] = i;
+            }
+            childCounts[i] = childCount;
+            names[i] = entity.getName();
+            tags[i] = entity.getTag();
+            actives[i] = entity.isActiveSelf();
+
+            componentStarts[i] = components.size();
+            components.addAll(entity.components);
+        }
+        componentStarts[entityCount] = components.size();
+
+        templates = new Component[components.size()];
+        copiers = new ComponentCopier[components.size()];
+
+        for (int i = 0; i < templates.length; i++) {
+            Component component = components.get(i);
+            ComponentCopier<Component> copier = componentCopiers.getCopier(component.getClass());
+
+            if (copier == null) {
+                throw new IllegalArgumentException("no ComponentCopier registered for " + component.getClass().getName());
+            }
+            copiers[i] = copier;
+            templates[i] = copier.copy(component);
+            templates[i].active = component.active;
+        }
+    }
+    public Prefab(Entity root) {
+        this(root, new ComponentCopiers());
+    }
+
+    public int getEntityCount() {
+        return entityCount;
+    }
+    public int getComponentCount() {
+        return templates.length;
+    }
+
+    // a detached copy
+    public Entity instantiate() {
+        return build(1)[0];
+    }
+    public Entity instantiate(Scene scene) {
+        return instantiate(scene, 1)[0];
+    }
+    // count copies added to the scene as roots, like Scene.addEntity the add is applied at the
+    // next update once the scene is initted
+    public Entity[] instantiate(Scene scene, int count) {
+        Entity[] entities = build(count);
+        Entity[] roots = new Entity[count];
+
+        for (int i = 0; i < count; i++) {
+            roots[i] = entities[i * entityCount];
+        }
+        if (count > 0) {
+            scene.addInstances(this, entities);
+        }
+        return roots;
+    }
+
+    int getParent(int index) {
+        return parents[index];
+    }
+    int getChildCount(int index) {
+        return childCounts[index];
+    }
+    int getComponentStart(int index) {
+        return componentStarts[index];
+    }
+    int getComponentEnd(int index) {
+        return componentStarts[index + 1];
+    }
+    Component getTemplate(int slot) {
+        return templates[slot];
+    }
+
+    private Entity[] build(int count) {
+        Entity[] entities = new Entity[count * entityCount];
+
+        for (int base = 0; base < entities.length; base += entityCount) {
+            for (int i = 0; i < entityCount; i++) {
+                Entity entity = new Entity(names[i]);
+                int parent = parents[i];
+                int start = componentStarts[i];
+                int end = componentStarts[i + 1];
+
+                if (tags[i] != null && !tags[i].isEmpty()) {
+                    entity.setTag(tags[i]);
+                }
+                entity.prepare(parent == -1 ? null : entities[base + parent], actives[i], childCounts[i], end - start);
+
+                for (int slot = start; slot < end; slot++) {
+                    Component component = copiers[slot].copy(templates[slot]);
+
+                    component.active = templates[slot].active;
+                    entity.appendComponent(component);
+                }
+                entities[base + i] = entity;
+            }
+        }
+        return entities;
+    }
+
+
+    // the entities of one instantiate call, count copies of entityCount entities each in capture order
+    static final class Batch {
+        final Prefab prefab;
+        final Entity[] entities;
+
+
+        Batch(Prefab prefab, Entity[] entities) {
+            this.prefab = prefab;
+            this.entities = entities;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package io.faucette.scene_graph;
+
+
+import java.util.Arrays;
+
+
+public class Query extends EntitySet {
+    private final Class<? extends Component>[] componentClasses;
+
+
+    Query(Class<? extends Component>[] componentClasses) {
+        super();
+        this.componentClasses = componentClasses;
+    }
+
+    public Class<? extends Component>[] getComponentClasses() {
+        return Arrays.copyOf(componentClasses, componentClasses.length);
+    }
+
+    public boolean matches(Entity entity) {
+        for (Class<? extends Component> componentClass: componentClasses) {
+            if (!entity.hasComponent(componentClass)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // same classes in any order, duplicates ignored. the lists are a handful of classes, so
+    // scanning both ways beats building sets on every Scene.query call
+    boolean equalsComponentClasses(Class<? extends Component>[] componentClasses) {
+        return containsAll(this.componentClasses, componentClasses) &&
+            containsAll(componentClasses, this.componentClasses);
+    }
+
+    private static boolean containsAll(Class<? extends Component>[] a, Class<? extends Component>[] b) {
+        for (int i = 0; i < b.length; i++) {
+            if (!contains(a, b[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+    private static boolean contains(Class<? extends Component>[] classes, Class<? extends Component> componentClass) {
+        for (int i = 0; i < classes.length; i++) {
+            if (classes[i] == componentClass) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
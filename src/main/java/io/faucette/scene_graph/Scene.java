@@ -2,29 +2,34 @@ package io.faucette.scene_graph;
 
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.HashSet;
-import java.util.UUID;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
 
 import io.faucette.event_emitter.EventEmitter;
 
 
 public class Scene extends EventEmitter {
-    private UUID id;
+    private static final IdGenerator sceneIdGenerator = new SequentialIdGenerator();
+    private static final EntitySet emptyEntitySet = new EntitySet();
+
+    private long id;
     private String name;
 
     public final Time time;
 
-    private List<Entity> entities;
-    private Map<UUID, Entity> entityHash;
+    private EntityStore entities;
+    private IdGenerator idGenerator;
+    private LongMap<Entity> entityHash;
+    private Map<UUID, Entity> entityUUIDHash;
     private Map<String, Entity> entityNameHash;
-    private Set<Entity> entityAddSet;
-    private Set<Entity> entityRemoveSet;
+    private Map<String, EntitySet> entityTagHash;
+    private CommandBuffer commands;
 
     private List<ComponentManager> componentManagers;
     private Map<Class<? extends ComponentManager>, ComponentManager> componentManagerHash;
@@ -32,7 +37,19 @@ public class Scene extends EventEmitter {
     private List<Plugin> plugins;
     private Map<Class<? extends Plugin>, Plugin> pluginHash;
 
+    private List<EventChannel<?>> eventChannels;
+    private Map<Class<? extends Event>, EventChannel<?>> eventChannelHash;
+
+    private List<Query> queries;
+    private Map<Class<? extends Component>, List<Query>> componentQueries;
+
     private boolean initted;
+    private boolean componentManagersDirty;
+    private UpdateScheduler scheduler;
+    private FrameProfiler profiler;
+    private int structuralChanges;
+    private ChangeTracker changeTracker;
+    private boolean detaching;
 
     private Comparator<ComponentManager> componentManagerComparator = new Comparator<ComponentManager>() {
         @Override
@@ -50,16 +67,18 @@ public class Scene extends EventEmitter {
 
     public Scene(String name) {
 
-        id = UUID.randomUUID();
+        id = sceneIdGenerator.next();
         this.name = name;
 
         time = new Time();
 
-        entities = new ArrayList<>();
-        entityHash = new HashMap<>();
+        entities = new EntityStore();
+        idGenerator = new SequentialIdGenerator();
+        entityHash = new LongMap<>();
+        entityUUIDHash = new HashMap<>();
         entityNameHash = new HashMap<>();
-        entityAddSet = new HashSet<>();
-        entityRemoveSet = new HashSet<>();
+        entityTagHash = new HashMap<>();
+        commands = new CommandBuffer();
 
         componentManagers = new ArrayList<>();
         componentManagerHash = new HashMap<>();
@@ -67,13 +86,25 @@ public class Scene extends EventEmitter {
         plugins = new ArrayList<>();
         pluginHash = new HashMap<>();
 
+        eventChannels = new ArrayList<>();
+        eventChannelHash = new HashMap<>();
+
+        queries = new ArrayList<>();
+        componentQueries = new HashMap<>();
+
         initted = false;
+        componentManagersDirty = false;
+        scheduler = null;
+        profiler = null;
+        structuralChanges = 0;
+        changeTracker = null;
+        detaching = false;
     }
     public Scene() {
         this("");
     }
 
-    public UUID getId() {
+    public long getId() {
         return id;
     }
     public String getName() {
@@ -86,65 +117,162 @@ public class Scene extends EventEmitter {
         return !name.equals("");
     }
 
+    // plugins and component managers that declare non conflicting reads and writes
+    // update in parallel on the executor, null updates everything on the calling thread
+    public Scene setExecutor(ForkJoinPool executor) {
+        scheduler = executor == null ? null : new UpdateScheduler(executor);
+        return this;
+    }
+    public ForkJoinPool getExecutor() {
+        return scheduler == null ? null : scheduler.getPool();
+    }
+
+    // null disables profiling
+    public Scene setProfiler(FrameProfiler profiler) {
+        this.profiler = profiler;
+        return this;
+    }
+    public FrameProfiler getProfiler() {
+        return profiler;
+    }
+
     public Scene init() {
         if (!initted) {
             initted = true;
+            commands.setOwner(Thread.currentThread());
 
-            sortPlugins();
+            try {
+                sortPlugins();
 
-            for (Plugin plugin : plugins) {
-                plugin.init();
-            }
+                for (Plugin plugin : plugins) {
+                    plugin.init();
+                }
 
-            sortComponentManagers();
+                sortComponentManagers();
 
-            for (ComponentManager componentManager : componentManagers) {
-                componentManager.init();
+                for (ComponentManager componentManager : componentManagers) {
+                    componentManager.init();
+                }
+            } finally {
+                commands.setOwner(null);
             }
         }
         return this;
     }
 
     public Scene update() {
+        return update(time.now());
+    }
+    // currentTime is seconds since time.start(), SceneHost reads one clock for many scenes
+    Scene update(double currentTime) {
+        // the updating thread only owns the command buffer until update returns, a thread that
+        // updated this scene last frame may be updating another scene now
+        commands.setOwner(Thread.currentThread());
+
+        try {
+            return updateOwned(currentTime);
+        } finally {
+            commands.setOwner(null);
+        }
+    }
+    private Scene updateOwned(double currentTime) {
+        FrameProfiler profiler = this.profiler;
+        long frameStart = profiler == null ? 0L : System.nanoTime();
 
-        time.update();
+        time.update(currentTime);
+        structuralChanges = 0;
 
+        flushCommands();
 
-        for (Entity entity: entityAddSet) {
-            addEntityNow(entity);
+        for (int i = 0, il = plugins.size(); i < il; i++) {
+            plugins.get(i).preUpdate();
         }
-        entityAddSet.clear();
 
-        for (Entity entity: entityRemoveSet) {
-            removeEntityNow(entity);
-        }
-        entityRemoveSet.clear();
+        long flushNanos = profiler == null ? 0L : System.nanoTime() - frameStart;
+
+        dispatchEvents(profiler);
+
+        sortDirty();
 
+        for (int i = 0, il = time.consumeFixedSteps(); i < il; i++) {
+            if (scheduler != null) {
+                scheduler.fixedUpdate(plugins, componentManagers, profiler);
+            } else {
+                updateSequential(true, profiler);
+            }
+        }
 
-        for (Plugin plugin : plugins) {
-            plugin.update();
+        if (scheduler != null) {
+            scheduler.update(plugins, componentManagers, profiler);
+        } else {
+            updateSequential(false, profiler);
         }
-        for (ComponentManager componentManager : componentManagers) {
-            componentManager.update();
+        dispatchEvents(profiler);
+
+        if (profiler != null) {
+            profiler.endFrame(System.nanoTime() - frameStart, flushNanos, structuralChanges);
         }
 
         return this;
     }
+    private void updateSequential(boolean fixed, FrameProfiler profiler) {
+        for (int i = 0, il = plugins.size(); i < il; i++) {
+            Plugin plugin = plugins.get(i);
+            long start = profiler == null ? 0L : System.nanoTime();
+
+            if (fixed) {
+                plugin.fixedUpdate();
+            } else {
+                plugin.update();
+            }
+            if (profiler != null) {
+                profiler.record(plugin.getClass(), System.nanoTime() - start);
+            }
+        }
+        for (int i = 0, il = componentManagers.size(); i < il; i++) {
+            ComponentManager componentManager = componentManagers.get(i);
+            long start = profiler == null ? 0L : System.nanoTime();
+
+            if (fixed) {
+                componentManager.fixedUpdate();
+            } else {
+                componentManager.update();
+            }
+            if (profiler != null) {
+                profiler.record(componentManager.getClass(), System.nanoTime() - start);
+            }
+        }
+    }
 
     public Scene clear() {
 
-        entityAddSet.clear();
-        entityRemoveSet.clear();
+        commands.clear();
+
+        for (int i = 0, il = eventChannels.size(); i < il; i++) {
+            eventChannels.get(i).clear();
+        }
 
-        for (Entity entity: entities) {
-            entity.clear();
+        for (int i = 0, il = entities.size(); i < il; i++) {
+            entities.getAt(i).clear();
         }
         for (Plugin plugin: plugins) {
             plugin.clear();
         }
 
+        for (Query query: queries) {
+            query.clear();
+        }
+
+        for (EntitySet entitySet: entityTagHash.values()) {
+            entitySet.clear();
+        }
+
         entities.clear();
+        entityHash.clear();
+        entityUUIDHash.clear();
+        entityNameHash.clear();
         plugins.clear();
+        invalidateSchedule();
 
         return this;
     }
@@ -156,68 +284,366 @@ public class Scene extends EventEmitter {
     public Entity getEntity(String name) {
         return entityNameHash.get(name);
     }
+    public Entity getEntityById(long id) {
+        return entityHash.get(id);
+    }
     public Entity getEntity(UUID uuid) {
-        return entityHash.get(uuid);
+        return entityUUIDHash.get(uuid);
+    }
+    public Entity getEntityByHandle(long handle) {
+        return entities.get(handle);
     }
     public boolean hasEntity(Entity entity) {
-        return entityHash.containsKey(entity.getId());
+        return entities.get(entity.handle) == entity;
+    }
+    void setChangeTracker(ChangeTracker changeTracker) {
+        this.changeTracker = changeTracker;
+    }
+    ChangeTracker getChangeTracker() {
+        return changeTracker;
+    }
+    void markChanged(Component component) {
+        ChangeTracker changeTracker = this.changeTracker;
+
+        if (changeTracker != null) {
+            changeTracker.markChanged(component);
+        }
+    }
+
+    public int getEntityCount() {
+        return entities.size();
+    }
+    // dense, the order changes as entities are removed
+    Entity getEntityAt(int index) {
+        return entities.getAt(index);
+    }
+
+    public IdGenerator getIdGenerator() {
+        return idGenerator;
+    }
+    public Scene setIdGenerator(IdGenerator idGenerator) {
+        this.idGenerator = idGenerator;
+        return this;
+    }
+
+    // a shared empty set until an entity with the tag is added, so unknown tags are not indexed
+    public EntitySet getEntitiesByTag(String tag) {
+        EntitySet entitySet = entityTagHash.get(tag);
+        return entitySet == null ? emptyEntitySet : entitySet;
+    }
+    public Scene forEachWithTag(String tag, EntityVisitor visitor) {
+        EntitySet entitySet = entityTagHash.get(tag);
+
+        if (entitySet != null) {
+            entitySet.forEach(visitor);
+        }
+        return this;
     }
 
     public Scene addEntity(Entity entity) {
         if (initted) {
-            entityAddSet.add(entity);
+            commands.add(CommandBuffer.ADD_ENTITY, entity, null);
         } else {
             addEntityNow(entity);
         }
         return this;
     }
     private Scene addEntityNow(Entity entity) {
-        if (!entityHash.containsKey(entity.getId())) {
-            entity.scene = this;
-            entities.add(entity);
-            entityHash.put(entity.getId(), entity);
+        EntityStack stack = EntityStack.acquire();
 
-            if (entity.hasName()) {
-                entityNameHash.put(entity.getName(), entity);
-            }
+        try {
+            stack.push(entity);
 
-            for (Component component: entity.components) {
-                addComponent(component);
-            }
-            for (Entity child: entity.children) {
-                addEntityNow(child);
+            while (!stack.isEmpty()) {
+                Entity current = stack.pop();
+
+                if (attachEntity(current)) {
+                    stack.pushChildren(current);
+                }
             }
+        } finally {
+            stack.release();
         }
         return this;
     }
+    void addInstances(Prefab prefab, Entity[] entities) {
+        if (initted) {
+            commands.add(CommandBuffer.ADD_INSTANCES, null, new Prefab.Batch(prefab, entities));
+        } else {
+            addInstancesNow(prefab, entities);
+        }
+    }
+    // attaches a Prefab batch resolving each component slot's manager and queries once. an
+    // instance edited between instantiate and the flush takes the regular path where it differs
+    @SuppressWarnings("unchecked")
+    private void addInstancesNow(Prefab prefab, Entity[] entities) {
+        int entityCount = prefab.getEntityCount();
+        int slotCount = prefab.getComponentCount();
+        ComponentManager[] slotManagers = new ComponentManager[slotCount];
+        List<Query>[] slotQueries = new List[slotCount];
+
+        for (int slot = 0; slot < slotCount; slot++) {
+            Component template = prefab.getTemplate(slot);
+
+            slotManagers[slot] = getOrCreateComponentManager(template);
+            slotQueries[slot] = componentQueries.get(template.getClass());
+        }
+
+        for (int base = 0; base < entities.length; base += entityCount) {
+            for (int i = 0; i < entityCount; i++) {
+                Entity entity = entities[base + i];
+                int parentIndex = prefab.getParent(i);
+                Entity parent = parentIndex == -1 ? null : entities[base + parentIndex];
+
+                if (entity.getParent() != parent || (parent != null && parent.scene != this) || !attachNode(entity)) {
+                    continue;
+                }
+
+                List<Component> components = entity.components;
+                int start = prefab.getComponentStart(i);
+
+                if (components.size() == prefab.getComponentEnd(i) - start) {
+                    for (int j = 0, jl = components.size(); j < jl; j++) {
+                        Component component = components.get(j);
+                        int slot = start + j;
+
+                        if (component.getClass() == prefab.getTemplate(slot).getClass()) {
+                            attachComponent(component, slotManagers[slot], slotQueries[slot]);
+                        } else {
+                            addComponent(component);
+                        }
+                    }
+                } else {
+                    for (int j = 0, jl = components.size(); j < jl; j++) {
+                        addComponent(components.get(j));
+                    }
+                }
+
+                if (entity.children.size() != prefab.getChildCount(i)) {
+                    for (int j = 0, jl = entity.children.size(); j < jl; j++) {
+                        addEntityNow(entity.children.get(j));
+                    }
+                }
+            }
+        }
+    }
+    // attaches one entity without its children, SceneStreamer spreads a subtree over frames with it
+    boolean attachEntity(Entity entity) {
+        if (!attachNode(entity)) {
+            return false;
+        }
+        for (Component component: entity.components) {
+            addComponent(component);
+        }
+        return true;
+    }
+    private boolean attachNode(Entity entity) {
+        if (hasEntity(entity)) {
+            return false;
+        }
+
+        entity.scene = this;
+        entity.handle = entities.add(entity);
+        structuralChanges++;
+
+        // ids are assigned on first add, an entity keeps its id across scenes unless it is taken
+        while (entity.id == 0L || entityHash.containsKey(entity.id)) {
+            entity.id = idGenerator.next();
+        }
+        entityHash.put(entity.id, entity);
+
+        if (entity.uuid == null && idGenerator instanceof UUIDIdGenerator) {
+            entity.uuid = ((UUIDIdGenerator) idGenerator).nextUUID();
+        }
+        if (entity.uuid != null) {
+            entityUUIDHash.put(entity.uuid, entity);
+        }
+
+        if (entity.hasName()) {
+            entityNameHash.put(entity.getName(), entity);
+        }
+        addTag(entity, entity.getTag());
+
+        if (changeTracker != null) {
+            Entity parent = entity.getParent();
+            changeTracker.addEntity(entity, parent != null && hasEntity(parent) ? parent.id : 0L);
+        }
+        return true;
+    }
 
     public Scene removeEntity(Entity entity) {
         if (initted) {
-            entityRemoveSet.add(entity);
+            commands.add(CommandBuffer.REMOVE_ENTITY, entity, null);
         } else {
             removeEntityNow(entity);
         }
         return this;
     }
-    private Scene removeEntityNow(Entity entity) {
-        if (entityHash.containsKey(entity.getId())) {
-            entity.scene = null;
-            entities.remove(entity);
-            entityHash.remove(entity.getId());
+    Scene removeEntityNow(Entity entity) {
+        EntityStack stack = EntityStack.acquire();
+        boolean detached = false;
 
-            if (entity.hasName()) {
-                entityNameHash.remove(entity.getName());
-            }
+        try {
+            stack.push(entity);
+
+            while (!stack.isEmpty()) {
+                Entity current = stack.pop();
 
-            for (Component component: entity.components) {
-                removeComponent(component);
+                if (detachEntity(current)) {
+                    detached |= current == entity;
+                    stack.pushChildren(current);
+                }
             }
-            for (Entity child: entity.children) {
-                removeEntityNow(child);
+        } finally {
+            stack.release();
+        }
+
+        // a second despawn of an entity that is already out of the scene must not recycle it
+        // again, it may have been handed out by the pool since
+        if (entity.pool != null) {
+            if (detached) {
+                entity.pool.recycle(entity);
+            } else {
+                entity.pool = null;
             }
         }
         return this;
     }
+    boolean detachEntity(Entity entity) {
+        if (!hasEntity(entity)) {
+            return false;
+        }
+
+        if (changeTracker != null) {
+            changeTracker.removeEntity(entity);
+        }
+
+        // removing the entity removes its components on the other end of a replication stream
+        detaching = true;
+        for (Component component: entity.components) {
+            removeComponent(component);
+        }
+        detaching = false;
+        removeTag(entity, entity.getTag());
+
+        entity.scene = null;
+        entities.remove(entity.handle);
+        structuralChanges++;
+        entity.handle = -1L;
+        entityHash.remove(entity.id);
+
+        if (entity.uuid != null) {
+            entityUUIDHash.remove(entity.uuid);
+        }
+
+        if (entity.hasName()) {
+            entityNameHash.remove(entity.getName());
+        }
+        return true;
+    }
+
+    void updateTag(Entity entity, String previous) {
+        if (hasEntity(entity)) {
+            removeTag(entity, previous);
+            addTag(entity, entity.getTag());
+
+            if (changeTracker != null) {
+                changeTracker.setTag(entity);
+            }
+        }
+    }
+    // untagged entities are not indexed
+    private void addTag(Entity entity, String tag) {
+        if (tag != null && !tag.isEmpty()) {
+            EntitySet entitySet = entityTagHash.get(tag);
+
+            if (entitySet == null) {
+                entitySet = new EntitySet();
+                entityTagHash.put(tag, entitySet);
+            }
+            entitySet.add(entity);
+        }
+    }
+    private void removeTag(Entity entity, String tag) {
+        if (tag != null && !tag.isEmpty()) {
+            EntitySet entitySet = entityTagHash.get(tag);
+
+            if (entitySet != null) {
+                entitySet.remove(entity);
+            }
+        }
+    }
+
+    @SafeVarargs
+    public final Query query(Class<? extends Component>... componentClasses) {
+        for (int i = 0, il = queries.size(); i < il; i++) {
+            Query query = queries.get(i);
+
+            if (query.equalsComponentClasses(componentClasses)) {
+                return query;
+            }
+        }
+
+        Query query = new Query(Arrays.copyOf(componentClasses, componentClasses.length));
+        queries.add(query);
+
+        for (Class<? extends Component> componentClass: componentClasses) {
+            List<Query> list = componentQueries.get(componentClass);
+
+            if (list == null) {
+                list = new ArrayList<>();
+                componentQueries.put(componentClass, list);
+            }
+            if (!list.contains(query)) {
+                list.add(query);
+            }
+        }
+
+        for (int i = 0, il = entities.size(); i < il; i++) {
+            Entity entity = entities.getAt(i);
+
+            if (query.matches(entity)) {
+                query.add(entity);
+            }
+        }
+
+        return query;
+    }
+
+    // the channel for the event type, created with the factory on first use. create channels
+    // on the scene's thread, e.g. in a plugin's init, before parallel updates queue into them
+    @SuppressWarnings("unchecked")
+    public <T extends Event> EventChannel<T> getEventChannel(Class<T> type, EventChannel.Factory<T> factory) {
+        EventChannel<T> channel = (EventChannel<T>) eventChannelHash.get(type);
+
+        if (channel == null) {
+            channel = new EventChannel<>(type, factory);
+            eventChannels.add(channel);
+            eventChannelHash.put(type, channel);
+        }
+        return channel;
+    }
+    // null if no channel was created for the type
+    @SuppressWarnings("unchecked")
+    public <T extends Event> EventChannel<T> getEventChannel(Class<T> type) {
+        return (EventChannel<T>) eventChannelHash.get(type);
+    }
+    // listener time is its own sample under EventChannel, not part of the flush or a system
+    private void dispatchEvents(FrameProfiler profiler) {
+        if (eventChannels.isEmpty()) {
+            return;
+        }
+
+        long start = profiler == null ? 0L : System.nanoTime();
+
+        for (int i = 0, il = eventChannels.size(); i < il; i++) {
+            eventChannels.get(i).dispatch();
+        }
+
+        if (profiler != null) {
+            profiler.record(EventChannel.class, System.nanoTime() - start);
+        }
+    }
 
     public <T extends ComponentManager> boolean hasComponentManager(Class<T> componentManagerClass) {
         return componentManagerHash.containsKey(componentManagerClass);
@@ -228,10 +654,14 @@ public class Scene extends EventEmitter {
     }
 
     protected <T extends Component> Scene addComponent(T component) {
+        attachComponent(component, getOrCreateComponentManager(component), componentQueries.get(component.getClass()));
+        return this;
+    }
+    private ComponentManager getOrCreateComponentManager(Component component) {
         Class<? extends ComponentManager> componentManagerClass = component.getComponentManagerClass();
-        ComponentManager componentManager;
+        ComponentManager componentManager = componentManagerHash.get(componentManagerClass);
 
-        if (!componentManagerHash.containsKey(componentManagerClass)) {
+        if (componentManager == null) {
             componentManager = component.createComponentManager();
 
             componentManager.scene = this;
@@ -239,47 +669,220 @@ public class Scene extends EventEmitter {
             componentManagerHash.put(componentManagerClass, componentManager);
 
             if (initted) {
+                componentManagersDirty = true;
                 componentManager.init();
             }
-        } else {
-            componentManager = componentManagerHash.get(componentManagerClass);
+            invalidateSchedule();
         }
-
+        return componentManager;
+    }
+    private void attachComponent(Component component, ComponentManager componentManager, List<Query> list) {
         componentManager.addComponent(component);
         component.componentManager = componentManager;
+        structuralChanges++;
+
+        if (changeTracker != null) {
+            changeTracker.addComponent(component);
+        }
+        for (int i = 0, il = plugins.size(); i < il; i++) {
+            plugins.get(i).componentAdded(component);
+        }
+
+        if (list != null) {
+            for (int i = 0, il = list.size(); i < il; i++) {
+                Query query = list.get(i);
+
+                if (query.matches(component.entity)) {
+                    query.add(component.entity);
+                }
+            }
+        }
 
         if (initted) {
-            sortComponentManagers();
-            componentManager.sort();
             component.init();
         }
-
-        return this;
     }
     protected <T extends Component> Scene removeComponent(T component) {
         Class<? extends ComponentManager> componentManagerClass = component.getComponentManagerClass();
 
+        List<Query> list = componentQueries.get(component.getClass());
+        if (list != null) {
+            for (int i = 0, il = list.size(); i < il; i++) {
+                list.get(i).remove(component.entity);
+            }
+        }
+
         if (componentManagerHash.containsKey(componentManagerClass)) {
             ComponentManager componentManager = componentManagerHash.get(componentManagerClass);
 
             componentManager.removeComponent(component);
             component.componentManager = null;
+            structuralChanges++;
+
+            if (changeTracker != null && !detaching) {
+                changeTracker.removeComponent(component);
+            }
+            for (int i = 0, il = plugins.size(); i < il; i++) {
+                plugins.get(i).componentRemoved(component);
+            }
 
             if (componentManager.isEmpty()) {
                 componentManager.scene = null;
                 componentManagers.remove(componentManager);
                 componentManagerHash.remove(componentManagerClass);
+                if (profiler != null) {
+                    profiler.removeSystem(componentManager.getClass());
+                }
+                invalidateSchedule();
             }
         }
 
         return this;
     }
 
+    // safe to call from any thread, applied with the other structural changes at the start of the
+    // next update, or right away before init
+    public Scene addComponent(Entity entity, Component component) {
+        if (initted) {
+            commands.add(CommandBuffer.ADD_COMPONENT, entity, component);
+        } else {
+            entity.addComponent(component);
+        }
+        return this;
+    }
+    public Scene removeComponent(Entity entity, Component component) {
+        if (initted) {
+            commands.add(CommandBuffer.REMOVE_COMPONENT, entity, component);
+        } else {
+            entity.removeComponent(component);
+        }
+        return this;
+    }
+    // a null parent makes the entity a root of this scene
+    public Scene setParent(Entity entity, Entity parent) {
+        if (initted) {
+            commands.add(CommandBuffer.SET_PARENT, entity, parent);
+        } else {
+            applyParent(entity, parent);
+        }
+        return this;
+    }
+    private void applyParent(Entity entity, Entity parent) {
+        if (parent != null) {
+            parent.addChild(entity);
+        } else if (entity.hasParent()) {
+            entity.detach();
+            addEntity(entity);
+        }
+    }
+
+    // an entity's or component's active flag changed, a null component means the entity's subtree
+    void activeChanged(Entity entity, Component component) {
+        if (initted) {
+            commands.add(CommandBuffer.SET_ACTIVE, entity, component);
+        } else {
+            applyActive(entity, component);
+        }
+    }
+    private void applyActive(Entity entity, Component component) {
+        if (component != null) {
+            ComponentManager componentManager = component.componentManager;
+
+            if (componentManager != null && componentManager.scene == this) {
+                componentManager.setComponentActive(component, component.isActive());
+            }
+            return;
+        }
+        if (!hasEntity(entity)) {
+            return;
+        }
+
+        EntityStack stack = EntityStack.acquire();
+
+        try {
+            stack.push(entity);
+
+            while (!stack.isEmpty()) {
+                Entity current = stack.pop();
+                List<Component> components = current.components;
+
+                for (int i = 0, il = components.size(); i < il; i++) {
+                    Component child = components.get(i);
+                    ComponentManager componentManager = child.componentManager;
+
+                    if (componentManager != null && componentManager.scene == this) {
+                        componentManager.setComponentActive(child, child.isActive());
+                    }
+                }
+                stack.pushChildren(current);
+            }
+        } finally {
+            stack.release();
+        }
+    }
+
+    // applying a command can record more, e.g. a reparent queues the subtree's removal and
+    // re-add, so this runs until both the owner's buffer and the foreign queue are drained
+    private void flushCommands() {
+        int index = 0;
+
+        do {
+            for (; index < commands.size(); index++) {
+                Entity entity = commands.entity(index);
+
+                switch (commands.op(index)) {
+                    case CommandBuffer.ADD_ENTITY:
+                        addEntityNow(entity);
+                        break;
+                    case CommandBuffer.REMOVE_ENTITY:
+                        removeEntityNow(entity);
+                        break;
+                    case CommandBuffer.ADD_COMPONENT:
+                        entity.addComponent((Component) commands.argument(index));
+                        break;
+                    case CommandBuffer.REMOVE_COMPONENT:
+                        entity.removeComponent((Component) commands.argument(index));
+                        break;
+                    case CommandBuffer.SET_PARENT:
+                        applyParent(entity, (Entity) commands.argument(index));
+                        break;
+                    case CommandBuffer.SET_ACTIVE:
+                        applyActive(entity, (Component) commands.argument(index));
+                        break;
+                    case CommandBuffer.ADD_INSTANCES:
+                        Prefab.Batch batch = (Prefab.Batch) commands.argument(index);
+                        addInstancesNow(batch.prefab, batch.entities);
+                        break;
+                }
+            }
+        } while (commands.pollForeign());
+
+        commands.reset();
+    }
+
+    private void sortDirty() {
+        if (componentManagersDirty) {
+            componentManagersDirty = false;
+            sortComponentManagers();
+            invalidateSchedule();
+        }
+        for (ComponentManager componentManager : componentManagers) {
+            if (componentManager.isDirty()) {
+                componentManager.sort();
+            }
+        }
+    }
     private void sortComponentManagers() {
         Collections.sort(componentManagers, componentManagerComparator);
     }
     private void sortPlugins() {
         Collections.sort(plugins, pluginComparator);
+        invalidateSchedule();
+    }
+    private void invalidateSchedule() {
+        if (scheduler != null) {
+            scheduler.invalidate();
+        }
     }
 
     public <T extends Plugin> boolean hasPlugin(Class<T> pluginClass) {
@@ -295,6 +898,7 @@ public class Scene extends EventEmitter {
             plugin.scene = this;
             plugins.add(plugin);
             pluginHash.put(plugin.getClass(), plugin);
+            invalidateSchedule();
 
             if (initted) {
                 sortPlugins();
@@ -309,6 +913,10 @@ public class Scene extends EventEmitter {
             plugin.scene = null;
             plugins.remove(plugin);
             pluginHash.remove(plugin.getClass());
+            if (profiler != null) {
+                profiler.removeSystem(plugin.getClass());
+            }
+            invalidateSchedule();
         }
         return this;
     }
@@ -0,0 +1,328 @@
+package io.faucette.scene_graph;
+
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+// ticks many independent scenes, each at its own rate, on a work-stealing pool. a hosted
+// scene waits in a delay queue until its next tick is due, a driver thread hands due scenes to
+// the pool and the tick puts the scene back when it is done. a scene is in the queue or in
+// one tick, never both, so it is only touched by one thread at a time. code outside the host
+// reaches a hosted scene through HostedScene.execute.
+//
+// the driver reads the clock once per batch of due scenes and every scene in the batch
+// updates with that time
+public class SceneHost {
+    private final ForkJoinPool pool;
+    private final boolean ownsPool;
+    private final DelayQueue<HostedScene> queue;
+    private final List<HostedScene> scenes;
+    private final AtomicInteger ticking;
+    private Thread driver;
+
+
+    public SceneHost(ForkJoinPool pool) {
+        this(pool, false);
+    }
+    // a pool with one worker per core, shut down by stop
+    public SceneHost() {
+        this(new ForkJoinPool(), true);
+    }
+    private SceneHost(ForkJoinPool pool, boolean ownsPool) {
+        this.pool = pool;
+        this.ownsPool = ownsPool;
+        queue = new DelayQueue<>();
+        scenes = new CopyOnWriteArrayList<>();
+        ticking = new AtomicInteger(0);
+        driver = null;
+    }
+
+    public ForkJoinPool getPool() {
+        return pool;
+    }
+    public int size() {
+        return scenes.size();
+    }
+    public List<HostedScene> getScenes() {
+        return new ArrayList<>(scenes);
+    }
+    public boolean isRunning() {
+        return driver != null;
+    }
+
+    // hands the scene to the host, after this only touch it through HostedScene.execute.
+    // the first tick inits it
+    public HostedScene add(Scene scene, double tickRate) {
+        HostedScene hosted = new HostedScene(this, scene, tickRate);
+
+        scenes.add(hosted);
+        queue.add(hosted);
+        return hosted;
+    }
+    // the scene stops ticking, a tick already running finishes first. the hosted scene's lock
+    // orders this against the tick putting itself back in the queue
+    public SceneHost remove(HostedScene hosted) {
+        synchronized (hosted) {
+            hosted.removed = true;
+            queue.remove(hosted);
+        }
+        scenes.remove(hosted);
+        return this;
+    }
+
+    public synchronized SceneHost start() {
+        if (driver == null) {
+            driver = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    drive();
+                }
+            }, "scene-host");
+            driver.setDaemon(true);
+            driver.start();
+        }
+        return this;
+    }
+    // stops the driver and returns once the ticks already handed to the pool are done
+    public SceneHost stop() throws InterruptedException {
+        Thread driver;
+
+        synchronized (this) {
+            driver = this.driver;
+            this.driver = null;
+        }
+        if (driver != null) {
+            driver.interrupt();
+            driver.join();
+        }
+        synchronized (this) {
+            while (ticking.get() != 0) {
+                wait();
+            }
+        }
+        if (ownsPool) {
+            pool.shutdown();
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        }
+        return this;
+    }
+
+    private void drive() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                HostedScene hosted = queue.take();
+                long now = System.nanoTime();
+
+                do {
+                    hosted.frameNanos = now;
+                    ticking.incrementAndGet();
+                    execute(hosted);
+                } while ((hosted = queue.poll()) != null);
+            }
+        } catch (InterruptedException e) {
+            // stopped
+        } catch (RejectedExecutionException e) {
+            // the pool was shut down under the host
+        }
+    }
+    private void execute(HostedScene hosted) {
+        try {
+            pool.execute(hosted);
+        } catch (RejectedExecutionException e) {
+            reschedule(hosted);
+            tickDone();
+            throw e;
+        }
+    }
+
+    void reschedule(HostedScene hosted) {
+        synchronized (hosted) {
+            if (!hosted.removed) {
+                queue.add(hosted);
+            }
+        }
+    }
+    // stop waits for the count of ticks handed to the pool to reach zero
+    void tickDone() {
+        if (ticking.decrementAndGet() == 0) {
+            synchronized (this) {
+                notifyAll();
+            }
+        }
+    }
+
+
+    public static final class HostedScene implements Delayed, Runnable {
+        private final SceneHost host;
+        private final Scene scene;
+        private final ConcurrentLinkedQueue<Runnable> tasks;
+        private volatile long periodNanos;
+        private long nextTickNanos;
+        long frameNanos;
+        volatile boolean removed;
+        private boolean initted;
+        private volatile Throwable error;
+
+        private volatile long tickCount;
+        private volatile long overrunCount;
+        private volatile long totalTickNanos;
+        private volatile long lastTickNanos;
+        private volatile long maxTickNanos;
+        private volatile long lastLatenessNanos;
+        private volatile long maxLatenessNanos;
+
+
+        HostedScene(SceneHost host, Scene scene, double tickRate) {
+            this.host = host;
+            this.scene = scene;
+            tasks = new ConcurrentLinkedQueue<>();
+            periodNanos = period(tickRate);
+            // a random phase within the first period keeps scenes added together from ticking together
+            nextTickNanos = System.nanoTime() + ThreadLocalRandom.current().nextLong(periodNanos);
+            frameNanos = 0L;
+            removed = false;
+            initted = false;
+            error = null;
+        }
+
+        public Scene getScene() {
+            return scene;
+        }
+        public double getTickRate() {
+            return 1e9d / periodNanos;
+        }
+        // takes effect after the next tick
+        public HostedScene setTickRate(double tickRate) {
+            periodNanos = period(tickRate);
+            return this;
+        }
+
+        // runs the task on the scene's tick thread right before its next update
+        public HostedScene execute(Runnable task) {
+            tasks.add(task);
+            return this;
+        }
+
+        public boolean isRemoved() {
+            return removed;
+        }
+        // what stopped the scene, a scene whose update throws is removed from the host
+        public Throwable getError() {
+            return error;
+        }
+
+        public long getTickCount() {
+            return tickCount;
+        }
+        // ticks skipped because a tick ran past the following one
+        public long getOverrunCount() {
+            return overrunCount;
+        }
+        public long getLastTickNanos() {
+            return lastTickNanos;
+        }
+        public long getMaxTickNanos() {
+            return maxTickNanos;
+        }
+        public long getAverageTickNanos() {
+            long ticks = tickCount;
+            return ticks == 0L ? 0L : totalTickNanos / ticks;
+        }
+        // how long after it was due the last tick started, waiting for the driver and the pool
+        public long getLastLatenessNanos() {
+            return lastLatenessNanos;
+        }
+        public long getMaxLatenessNanos() {
+            return maxLatenessNanos;
+        }
+        // share of the tick period spent updating, above 1 the scene cannot keep its rate
+        public double getLoad() {
+            long ticks = tickCount;
+            return ticks == 0L ? 0d : (double) totalTickNanos / ticks / periodNanos;
+        }
+
+        @Override
+        public void run() {
+            try {
+                if (!removed) {
+                    tick();
+                }
+            } finally {
+                host.tickDone();
+            }
+        }
+        private void tick() {
+            long start = System.nanoTime();
+            long lateness = start - nextTickNanos;
+
+            try {
+                Runnable task;
+                while ((task = tasks.poll()) != null) {
+                    task.run();
+                }
+                if (!initted) {
+                    initted = true;
+                    scene.init();
+                }
+                scene.update(frameNanos * 1e-9d - scene.time.start());
+            } catch (Throwable e) {
+                error = e;
+                host.remove(this);
+                return;
+            }
+
+            long end = System.nanoTime();
+            long nanos = end - start;
+            long period = periodNanos;
+
+            tickCount++;
+            totalTickNanos += nanos;
+            lastTickNanos = nanos;
+            maxTickNanos = Math.max(maxTickNanos, nanos);
+            lastLatenessNanos = lateness;
+            maxLatenessNanos = Math.max(maxLatenessNanos, lateness);
+
+            // missed ticks are dropped so the scene keeps its phase instead of bursting
+            nextTickNanos += period;
+            if (nextTickNanos <= end) {
+                long missed = (end - nextTickNanos) / period + 1L;
+
+                nextTickNanos += missed * period;
+                overrunCount += missed;
+            }
+
+            host.reschedule(this);
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(nextTickNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+        @Override
+        public int compareTo(Delayed other) {
+            if (other instanceof HostedScene) {
+                long difference = nextTickNanos - ((HostedScene) other).nextTickNanos;
+                return difference < 0L ? -1 : difference > 0L ? 1 : 0;
+            }
+            long difference = getDelay(TimeUnit.NANOSECONDS) - other.getDelay(TimeUnit.NANOSECONDS);
+            return difference < 0L ? -1 : difference > 0L ? 1 : 0;
+        }
+
+        private static long period(double tickRate) {
+            if (tickRate <= 0d) {
+                throw new IllegalArgumentException("tickRate must be positive");
+            }
+            return (long) (1e9d / tickRate);
+        }
+    }
+}
@@ -0,0 +1,311 @@
+package io.faucette.scene_graph;
+
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+
+// binary snapshot of a scene's entity hierarchy and the state of components with a registered
+// ComponentSerializer, other components are left out.
+//
+// header:  int magic, short version, short typeCount, typeCount class names, int entityCount
+// entity:  int parentIndex (-1 for roots), long id, string name, string tag, short componentCount
+// component: short type, int length, length bytes written by the serializer
+//
+// entities are written pre-order so a parent is always read before its children,
+// strings are a short byte length followed by utf-8
+public class SceneSnapshot {
+    private static final int MAGIC = 0x53475353;
+    private static final short VERSION = 1;
+    static final Charset UTF_8 = Charset.forName("UTF-8");
+    static final byte[] EMPTY = new byte[0];
+
+    private final ComponentSerializers serializers;
+    private int bufferSize;
+
+
+    public SceneSnapshot(ComponentSerializers serializers) {
+        this.serializers = serializers;
+        bufferSize = 1 << 16;
+    }
+    public SceneSnapshot() {
+        this(new ComponentSerializers());
+    }
+
+    public ComponentSerializers getSerializers() {
+        return serializers;
+    }
+    public <T extends Component> SceneSnapshot register(Class<T> componentClass, ComponentSerializer<T> serializer) {
+        serializers.register(componentClass, serializer);
+        return this;
+    }
+
+    public SceneSnapshot setBufferSize(int bufferSize) {
+        this.bufferSize = bufferSize;
+        return this;
+    }
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    public SceneSnapshot write(Scene scene, Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            return write(scene, channel);
+        }
+    }
+    public SceneSnapshot write(Scene scene, WritableByteChannel channel) throws IOException {
+        Writer writer = new Writer(channel, bufferSize);
+
+        writer.ensure(8);
+        writer.buffer.putInt(MAGIC);
+        writer.buffer.putShort(VERSION);
+        writer.buffer.putShort((short) serializers.size());
+        for (int i = 0, il = serializers.size(); i < il; i++) {
+            writer.putString(serializers.getType(i).getName());
+        }
+        writer.ensure(4);
+        writer.buffer.putInt(scene.getEntityCount());
+
+        Entity[] stack = new Entity[64];
+        int[] parents = new int[64];
+        int stackSize = 0;
+        int index = 0;
+
+        for (int i = 0, il = scene.getEntityCount(); i < il; i++) {
+            Entity root = scene.getEntityAt(i);
+
+            if (root.hasParent() && scene.hasEntity(root.getParent())) {
+                continue;
+            }
+
+            stack[0] = root;
+            parents[0] = -1;
+            stackSize = 1;
+
+            while (stackSize != 0) {
+                Entity entity = stack[--stackSize];
+                int parentIndex = parents[stackSize];
+                int entityIndex = index++;
+
+                writeEntity(writer, entity, parentIndex);
+
+                List<Entity> children = entity.children;
+                for (int j = children.size() - 1; j >= 0; j--) {
+                    Entity child = children.get(j);
+
+                    if (scene.hasEntity(child)) {
+                        if (stackSize == stack.length) {
+                            stack = Arrays.copyOf(stack, stackSize * 2);
+                            parents = Arrays.copyOf(parents, stackSize * 2);
+                        }
+                        stack[stackSize] = child;
+                        parents[stackSize] = entityIndex;
+                        stackSize++;
+                    }
+                }
+            }
+        }
+
+        writer.flush();
+        return this;
+    }
+
+    private void writeEntity(Writer writer, Entity entity, int parentIndex) throws IOException {
+        List<Component> components = entity.components;
+        int componentCount = 0;
+
+        for (int i = 0, il = components.size(); i < il; i++) {
+            if (serializers.isRegistered(components.get(i).getClass())) {
+                componentCount++;
+            }
+        }
+
+        writer.ensure(12);
+        writer.buffer.putInt(parentIndex);
+        writer.buffer.putLong(entity.id);
+        writer.putString(entity.getName());
+        writer.putString(entity.getTag());
+        writer.ensure(2);
+        writer.buffer.putShort((short) componentCount);
+
+        for (int i = 0, il = components.size(); i < il; i++) {
+            Component component = components.get(i);
+            int typeId = serializers.getTypeId(component.getClass());
+
+            if (typeId != -1) {
+                ComponentSerializer<Component> serializer = serializers.getSerializer(typeId);
+                int size = serializer.size(component);
+
+                writer.ensure(6 + size);
+                writer.buffer.putShort((short) typeId);
+                writer.buffer.putInt(size);
+
+                int start = writer.buffer.position();
+                serializer.write(component, writer.buffer);
+
+                if (writer.buffer.position() - start != size) {
+                    throw new IOException(component.getClass().getName() + " serializer wrote " +
+                        (writer.buffer.position() - start) + " bytes, size() returned " + size);
+                }
+            }
+        }
+    }
+
+    // maps the file and reads it, see read(ByteBuffer, Scene)
+    public List<Entity> load(Path path, Scene scene) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return read(buffer, scene);
+        }
+    }
+    // creates the snapshot's entities and components and adds the roots to scene, if not null,
+    // returns the roots
+    public List<Entity> read(ByteBuffer buffer, Scene scene) throws IOException {
+        try {
+            return readEntities(buffer, scene);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("truncated scene snapshot", e);
+        }
+    }
+
+    private List<Entity> readEntities(ByteBuffer buffer, Scene scene) throws IOException {
+        byte[] scratch = new byte[256];
+
+        if (buffer.getInt() != MAGIC) {
+            throw new IOException("not a scene snapshot");
+        }
+        short version = buffer.getShort();
+        if (version != VERSION) {
+            throw new IOException("unsupported scene snapshot version " + version);
+        }
+
+        int typeCount = buffer.getShort();
+        int[] typeIds = new int[typeCount];
+
+        for (int i = 0; i < typeCount; i++) {
+            String typeName = getString(buffer, scratch);
+            typeIds[i] = serializers.getTypeId(typeName);
+
+            if (typeIds[i] == -1) {
+                throw new IOException("no ComponentSerializer registered for " + typeName);
+            }
+        }
+
+        int entityCount = buffer.getInt();
+        Entity[] entities = new Entity[entityCount];
+        List<Entity> roots = new ArrayList<>();
+
+        for (int i = 0; i < entityCount; i++) {
+            int parentIndex = buffer.getInt();
+            long id = buffer.getLong();
+            String name = getString(buffer, scratch);
+            String tag = getString(buffer, scratch);
+            int componentCount = buffer.getShort();
+
+            Entity entity = new Entity(name);
+            entity.id = id;
+            if (!tag.isEmpty()) {
+                entity.setTag(tag);
+            }
+
+            for (int j = 0; j < componentCount; j++) {
+                int type = buffer.getShort();
+                int size = buffer.getInt();
+                int start = buffer.position();
+
+                if (type < 0 || type >= typeCount) {
+                    throw new IOException("invalid component type " + type);
+                }
+                ComponentSerializer<Component> serializer = serializers.getSerializer(typeIds[type]);
+                Component component = serializer.create();
+                serializer.read(component, buffer);
+                entity.addComponent(component);
+
+                if (buffer.position() - start != size) {
+                    throw new IOException("component serializer for type " + type + " read " +
+                        (buffer.position() - start) + " bytes, expected " + size);
+                }
+            }
+
+            if (parentIndex == -1) {
+                roots.add(entity);
+            } else if (parentIndex >= 0 && parentIndex < i) {
+                entities[parentIndex].addChild(entity);
+            } else {
+                throw new IOException("invalid parent index " + parentIndex + " for entity " + i);
+            }
+            entities[i] = entity;
+        }
+
+        if (scene != null) {
+            for (int i = 0, il = roots.size(); i < il; i++) {
+                scene.addEntity(roots.get(i));
+            }
+        }
+        return roots;
+    }
+
+    static String getString(ByteBuffer buffer, byte[] scratch) {
+        int length = buffer.getShort() & 0xffff;
+
+        if (length == 0) {
+            return "";
+        }
+        if (length > scratch.length) {
+            scratch = new byte[length];
+        }
+        buffer.get(scratch, 0, length);
+        return new String(scratch, 0, length, UTF_8);
+    }
+
+
+    private static class Writer {
+        private final WritableByteChannel channel;
+        private ByteBuffer buffer;
+
+
+        public Writer(WritableByteChannel channel, int bufferSize) {
+            this.channel = channel;
+            buffer = ByteBuffer.allocateDirect(bufferSize);
+        }
+
+        public void ensure(int size) throws IOException {
+            if (buffer.remaining() < size) {
+                flush();
+
+                if (buffer.capacity() < size) {
+                    buffer = ByteBuffer.allocateDirect(size);
+                }
+            }
+        }
+        public void putString(String string) throws IOException {
+            byte[] bytes = string == null || string.isEmpty() ? EMPTY : string.getBytes(UTF_8);
+
+            if (bytes.length > 0xffff) {
+                throw new IOException("string longer than 65535 bytes: " + string.substring(0, 32) + "...");
+            }
+
+            ensure(2 + bytes.length);
+            buffer.putShort((short) bytes.length);
+            buffer.put(bytes);
+        }
+        public void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+}
@@ -0,0 +1,337 @@
+package io.faucette.scene_graph;
+
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+
+// streams regions in and out of a live scene. a Loader builds a region's detached entities
+// on the executor, then preUpdate attaches them a few at a time until the frame's budget,
+// measured with Time.now, is spent. unloading detaches in reverse, children before parents,
+// under the same budget. a region's roots become roots of the scene. unloading only detaches
+// entities still attached under one of the region's roots since the region attached them, along
+// with any children gameplay added to them; entities gameplay removed, moved out of the region
+// or respawned from an EntityPool are left alone.
+//
+// load and unload are called on the scene's thread, Loader.load runs on the executor and
+// must not touch the scene
+public class SceneStreamer extends Plugin {
+    private final Loader loader;
+    private final Executor executor;
+    private final ExecutorService ownedExecutor;
+    private final Map<String, Region> regions;
+    private final List<Region> working;
+    private final ConcurrentLinkedQueue<Region> loaded;
+    private double budget;
+
+
+    public SceneStreamer(Loader loader, Executor executor) {
+        super();
+
+        this.loader = loader;
+        this.executor = executor;
+        ownedExecutor = null;
+        regions = new HashMap<>();
+        working = new ArrayList<>();
+        loaded = new ConcurrentLinkedQueue<>();
+        budget = 0.002d;
+    }
+    // loads regions on a daemon thread owned by the streamer, shut down by destroy
+    public SceneStreamer(Loader loader) {
+        super();
+
+        this.loader = loader;
+        ownedExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "scene-streamer");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor = ownedExecutor;
+        regions = new HashMap<>();
+        working = new ArrayList<>();
+        loaded = new ConcurrentLinkedQueue<>();
+        budget = 0.002d;
+    }
+
+    // seconds per frame spent attaching and detaching, at least one entity moves every frame
+    public SceneStreamer setBudget(double budget) {
+        this.budget = budget;
+        return this;
+    }
+    public double getBudget() {
+        return budget;
+    }
+
+    public Region getRegion(String key) {
+        return regions.get(key);
+    }
+    public boolean isIdle() {
+        return working.isEmpty() && loaded.isEmpty() && !hasState(Region.LOADING);
+    }
+
+    // starts loading the region, or cancels a pending unload of it
+    public Region load(String key) {
+        Region region = regions.get(key);
+
+        if (region == null) {
+            region = new Region(key);
+            regions.put(key, region);
+            submit(region);
+        } else if (region.cancelled) {
+            region.cancelled = false;
+        } else if (region.state == Region.DETACHING) {
+            region.state = Region.ATTACHING;
+        } else if (region.state == Region.FAILED) {
+            submit(region);
+        }
+        return region;
+    }
+    // detaches the region over the next frames, a region still loading is dropped when it arrives
+    public SceneStreamer unload(String key) {
+        Region region = regions.get(key);
+
+        if (region != null) {
+            switch (region.state) {
+                case Region.LOADING:
+                    region.cancelled = true;
+                    break;
+                case Region.ATTACHING:
+                case Region.LOADED:
+                    region.state = Region.DETACHING;
+                    if (!working.contains(region)) {
+                        working.add(region);
+                    }
+                    break;
+                case Region.FAILED:
+                    drop(region);
+                    break;
+            }
+        }
+        return this;
+    }
+
+    @Override
+    public SceneStreamer preUpdate() {
+        Region region;
+
+        while ((region = loaded.poll()) != null) {
+            if (region.cancelled) {
+                region.cancelled = false;
+                drop(region);
+            } else if (region.state == Region.ATTACHING) {
+                working.add(region);
+            }
+        }
+
+        if (working.isEmpty()) {
+            return this;
+        }
+
+        Time time = scene.time;
+        double end = time.now() + budget;
+        boolean first = true;
+
+        while (!working.isEmpty()) {
+            region = working.get(0);
+
+            if (region.state == Region.ATTACHING) {
+                Entity[] entities = region.entities;
+
+                while (region.attached < entities.length && (first || time.now() < end)) {
+                    Entity entity = entities[region.attached++];
+
+                    if (scene.attachEntity(entity)) {
+                        region.handles.put(entity, entity.handle);
+                    }
+                    first = false;
+                }
+                if (region.attached == entities.length) {
+                    region.state = Region.LOADED;
+                    working.remove(0);
+                    continue;
+                }
+            } else if (region.state == Region.DETACHING) {
+                Entity[] entities = region.entities;
+
+                while (region.attached > 0 && (first || time.now() < end)) {
+                    if (detach(region, entities[--region.attached])) {
+                        first = false;
+                    }
+                }
+                if (region.attached == 0) {
+                    drop(region);
+                    working.remove(0);
+                    continue;
+                }
+            } else {
+                working.remove(0);
+                continue;
+            }
+            break;
+        }
+        return this;
+    }
+
+    @Override
+    public SceneStreamer clear() {
+        for (Region region: regions.values()) {
+            region.cancelled = region.state == Region.LOADING;
+            region.entities = null;
+            region.handles.clear();
+            region.attached = 0;
+            if (!region.cancelled) {
+                region.state = Region.UNLOADED;
+            }
+        }
+        regions.clear();
+        working.clear();
+        loaded.clear();
+        return this;
+    }
+
+    @Override
+    public SceneStreamer destroy() {
+        super.destroy();
+
+        if (ownedExecutor != null) {
+            ownedExecutor.shutdownNow();
+        }
+        return this;
+    }
+
+    private void submit(final Region region) {
+        region.state = Region.LOADING;
+        region.cancelled = false;
+        region.error = null;
+
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    region.entities = flatten(loader.load(region.key));
+                    region.state = Region.ATTACHING;
+                } catch (Exception e) {
+                    region.error = e;
+                    region.state = Region.FAILED;
+                }
+                loaded.add(region);
+            }
+        });
+    }
+    // children gameplay attached to the entity go with it, subtree and all
+    private boolean detach(Region region, Entity entity) {
+        if (!owns(region, entity) || !owns(region, entity.getRoot())) {
+            return false;
+        }
+
+        List<Entity> children = entity.children;
+        for (int i = 0, il = children.size(); i < il; i++) {
+            Entity child = children.get(i);
+
+            if (child.getScene() == scene && !owns(region, child)) {
+                scene.removeEntityNow(child);
+            }
+        }
+        scene.detachEntity(entity);
+        return true;
+    }
+    // still in the scene under the handle it was attached with, so not removed or respawned since
+    private boolean owns(Region region, Entity entity) {
+        Long handle = region.handles.get(entity);
+        return handle != null && entity.getScene() == scene && entity.handle == handle;
+    }
+    private void drop(Region region) {
+        region.entities = null;
+        region.handles.clear();
+        region.state = Region.UNLOADED;
+
+        if (regions.get(region.key) == region) {
+            regions.remove(region.key);
+        }
+    }
+    private boolean hasState(int state) {
+        for (Region region: regions.values()) {
+            if (region.state == state) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // breadth first so every parent is attached before its children
+    private static Entity[] flatten(List<Entity> roots) {
+        List<Entity> order = new ArrayList<>(roots);
+
+        for (int i = 0; i < order.size(); i++) {
+            order.addAll(order.get(i).children);
+        }
+        return order.toArray(new Entity[order.size()]);
+    }
+
+
+    public interface Loader {
+        // builds the region's root entities, detached from any scene, runs on the streamer's executor
+        List<Entity> load(String key) throws Exception;
+    }
+
+
+    public static final class Region {
+        public static final int LOADING = 0;
+        public static final int ATTACHING = 1;
+        public static final int LOADED = 2;
+        public static final int DETACHING = 3;
+        public static final int UNLOADED = 4;
+        public static final int FAILED = 5;
+
+        private final String key;
+        volatile int state;
+        volatile boolean cancelled;
+        volatile Entity[] entities;
+        volatile Exception error;
+        int attached;
+        final Map<Entity, Long> handles;
+
+
+        Region(String key) {
+            this.key = key;
+            state = UNLOADED;
+            cancelled = false;
+            entities = null;
+            error = null;
+            attached = 0;
+            handles = new IdentityHashMap<>();
+        }
+
+        public String getKey() {
+            return key;
+        }
+        public int getState() {
+            return state;
+        }
+        public boolean isLoaded() {
+            return state == LOADED;
+        }
+        public Exception getError() {
+            return error;
+        }
+        // entities attached to the scene so far
+        public int getAttachedCount() {
+            return attached;
+        }
+        public int getEntityCount() {
+            Entity[] entities = this.entities;
+            return entities == null ? 0 : entities.length;
+        }
+    }
+}
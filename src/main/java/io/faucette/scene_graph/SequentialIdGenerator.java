@@ -0,0 +1,23 @@
+package io.faucette.scene_graph;
+
+
+import java.util.concurrent.atomic.AtomicLong;
+
+
+public class SequentialIdGenerator implements IdGenerator {
+    private final AtomicLong current;
+
+
+    public SequentialIdGenerator(long start) {
+        current = new AtomicLong(start - 1L);
+    }
+    public SequentialIdGenerator() {
+        this(1L);
+    }
+
+    @Override
+    public long next() {
+        long id = current.incrementAndGet();
+        return id == 0L ? current.incrementAndGet() : id;
+    }
+}
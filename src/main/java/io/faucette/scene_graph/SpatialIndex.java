@@ -0,0 +1,306 @@
+package io.faucette.scene_graph;
+
+
+import java.util.Arrays;
+
+
+// indexes the world position of every entity with a Transform. update() folds in the transforms
+// the TransformManager recomputed last frame and leaves go through componentRemoved, so the work
+// per frame follows what moved. plugins update before component managers, so during a frame
+// the index agrees with Transform.getWorldX/Y/Z.
+//
+// queries only read, they are safe from parallel component updates as long as every thread
+// passes its own SpatialResults
+public class SpatialIndex extends Plugin {
+    private final SpatialPartition partition;
+
+    private Transform[] transforms;
+    private float[] positions;
+    private int[] freeItems;
+    private int freeCount;
+    private int itemCount;
+    private int size;
+
+    private float minX;
+    private float minY;
+    private float minZ;
+    private float maxX;
+    private float maxY;
+    private float maxZ;
+
+    private long lastUpdateCount;
+
+
+    public SpatialIndex(SpatialPartition partition) {
+        super();
+
+        this.partition = partition;
+        partition.index = this;
+
+        transforms = new Transform[0];
+        positions = new float[0];
+        freeItems = new int[16];
+        freeCount = 0;
+        itemCount = 0;
+        size = 0;
+        resetBounds();
+
+        lastUpdateCount = 0L;
+
+        declareRead(Transform.class);
+    }
+    public SpatialIndex() {
+        this(new GridPartition(16f));
+    }
+
+    public SpatialPartition getPartition() {
+        return partition;
+    }
+    public int size() {
+        return size;
+    }
+    public boolean contains(Entity entity) {
+        Transform transform = entity.getComponent(Transform.class);
+        return transform != null && transform.spatialItem != -1;
+    }
+
+    @Override
+    public SpatialIndex update() {
+        refresh();
+        return this;
+    }
+
+    @Override
+    public SpatialIndex clear() {
+        for (int i = 0; i < itemCount; i++) {
+            if (transforms[i] != null) {
+                transforms[i].spatialItem = -1;
+                transforms[i] = null;
+            }
+        }
+        partition.clear();
+        freeCount = 0;
+        itemCount = 0;
+        size = 0;
+        resetBounds();
+        lastUpdateCount = 0L;
+        return this;
+    }
+
+    @Override
+    public SpatialIndex componentRemoved(Component component) {
+        if (component instanceof Transform) {
+            Transform transform = (Transform) component;
+
+            if (transform.spatialItem != -1) {
+                removeItem(transform);
+            }
+        }
+        return this;
+    }
+
+    // folds in the transforms recomputed since the last refresh, called by update
+    public SpatialIndex refresh() {
+        if (scene == null) {
+            return this;
+        }
+
+        TransformManager transformManager = scene.getComponentManager(TransformManager.class);
+        if (transformManager == null) {
+            return this;
+        }
+
+        long updateCount = transformManager.getUpdateCount();
+
+        if (updateCount == lastUpdateCount) {
+            return this;
+        }
+        if (updateCount == lastUpdateCount + 1L) {
+            for (int i = 0, il = transformManager.getUpdatedCount(); i < il; i++) {
+                refresh(transformManager.getUpdated(i));
+            }
+        } else {
+            // an update went by without us, the updated list only covers the last one
+            for (int i = 0, il = transformManager.components.size(); i < il; i++) {
+                refresh((Transform) transformManager.components.get(i));
+            }
+        }
+        lastUpdateCount = updateCount;
+
+        return this;
+    }
+    private void refresh(Transform transform) {
+        if (transform.slot == -1) {
+            return;
+        }
+
+        float x = transform.getWorldX();
+        float y = transform.getWorldY();
+        float z = transform.getWorldZ();
+        int item = transform.spatialItem;
+
+        if (item == -1) {
+            item = addItem(transform);
+            setPosition(item, x, y, z);
+            partition.insert(item, x, y, z);
+        } else {
+            setPosition(item, x, y, z);
+            partition.move(item, x, y, z);
+        }
+    }
+
+    public SpatialResults box(float minX, float minY, float minZ, float maxX, float maxY, float maxZ, SpatialResults results) {
+        results.clear();
+        results.mode = SpatialResults.BOX;
+        results.minX = minX;
+        results.minY = minY;
+        results.minZ = minZ;
+        results.maxX = maxX;
+        results.maxY = maxY;
+        results.maxZ = maxZ;
+
+        partition.query(minX, minY, minZ, maxX, maxY, maxZ, results);
+        return results;
+    }
+
+    public SpatialResults radius(float x, float y, float z, float radius, SpatialResults results) {
+        results.clear();
+        results.mode = SpatialResults.RADIUS;
+        setSphere(results, x, y, z, radius);
+
+        partition.query(x - radius, y - radius, z - radius, x + radius, y + radius, z + radius, results);
+        return results;
+    }
+
+    // the k entities closest to the point, closest first. searches a growing radius until it
+    // holds k entities or covers everything indexed
+    public SpatialResults nearest(float x, float y, float z, int k, SpatialResults results) {
+        results.clear();
+        results.mode = SpatialResults.NEAREST;
+        results.limit = k;
+
+        if (size == 0 || k <= 0) {
+            return results;
+        }
+
+        float farthest = (float) Math.sqrt(
+            square(Math.max(Math.abs(x - minX), Math.abs(x - maxX))) +
+            square(Math.max(Math.abs(y - minY), Math.abs(y - maxY))) +
+            square(Math.max(Math.abs(z - minZ), Math.abs(z - maxZ)))
+        );
+        float radius = partition.getSearchRadius();
+
+        while (true) {
+            results.clear();
+            setSphere(results, x, y, z, radius);
+            partition.query(x - radius, y - radius, z - radius, x + radius, y + radius, z + radius, results);
+
+            if (results.size() >= k || radius >= farthest) {
+                break;
+            }
+            radius = Math.min(radius * 2f, farthest);
+        }
+
+        results.sortHeap();
+        return results;
+    }
+
+    void test(int item, SpatialResults results) {
+        float x = positions[item * 3];
+        float y = positions[item * 3 + 1];
+        float z = positions[item * 3 + 2];
+
+        if (results.mode == SpatialResults.BOX) {
+            if (x >= results.minX && x <= results.maxX &&
+                y >= results.minY && y <= results.maxY &&
+                z >= results.minZ && z <= results.maxZ) {
+                results.add(transforms[item].entity, 0f);
+            }
+        } else {
+            float dx = x - results.x;
+            float dy = y - results.y;
+            float dz = z - results.z;
+            float distanceSquared = dx * dx + dy * dy + dz * dz;
+
+            if (distanceSquared <= results.radiusSquared) {
+                if (results.mode == SpatialResults.RADIUS) {
+                    results.add(transforms[item].entity, distanceSquared);
+                } else {
+                    results.offer(transforms[item].entity, distanceSquared);
+                }
+            }
+        }
+    }
+
+    float getX(int item) {
+        return positions[item * 3];
+    }
+    float getY(int item) {
+        return positions[item * 3 + 1];
+    }
+    float getZ(int item) {
+        return positions[item * 3 + 2];
+    }
+
+    private int addItem(Transform transform) {
+        int item;
+
+        if (freeCount > 0) {
+            item = freeItems[--freeCount];
+        } else {
+            if (itemCount == transforms.length) {
+                int capacity = Math.max(16, itemCount * 2);
+                transforms = Arrays.copyOf(transforms, capacity);
+                positions = Arrays.copyOf(positions, capacity * 3);
+                partition.ensureCapacity(capacity);
+            }
+            item = itemCount++;
+        }
+
+        transforms[item] = transform;
+        transform.spatialItem = item;
+        size++;
+        return item;
+    }
+    private void removeItem(Transform transform) {
+        int item = transform.spatialItem;
+
+        partition.remove(item);
+        transforms[item] = null;
+        transform.spatialItem = -1;
+        size--;
+
+        if (freeCount == freeItems.length) {
+            freeItems = Arrays.copyOf(freeItems, freeCount * 2);
+        }
+        freeItems[freeCount++] = item;
+    }
+
+    // the bounds only grow until clear, they bound the k-nearest search
+    private void setPosition(int item, float x, float y, float z) {
+        positions[item * 3] = x;
+        positions[item * 3 + 1] = y;
+        positions[item * 3 + 2] = z;
+
+        minX = Math.min(minX, x);
+        minY = Math.min(minY, y);
+        minZ = Math.min(minZ, z);
+        maxX = Math.max(maxX, x);
+        maxY = Math.max(maxY, y);
+        maxZ = Math.max(maxZ, z);
+    }
+    private void resetBounds() {
+        minX = minY = minZ = Float.POSITIVE_INFINITY;
+        maxX = maxY = maxZ = Float.NEGATIVE_INFINITY;
+    }
+
+    private static void setSphere(SpatialResults results, float x, float y, float z, float radius) {
+        results.x = x;
+        results.y = y;
+        results.z = z;
+        results.radiusSquared = radius * radius;
+    }
+    private static float square(float value) {
+        return value * value;
+    }
+}
@@ -0,0 +1,22 @@
+package io.faucette.scene_graph;
+
+
+// the structure behind a SpatialIndex, items are the index's dense item ids and their
+// positions live in the index
+public abstract class SpatialPartition {
+    SpatialIndex index;
+
+
+    abstract void ensureCapacity(int itemCapacity);
+
+    abstract void insert(int item, float x, float y, float z);
+    abstract void remove(int item);
+    abstract void move(int item, float x, float y, float z);
+    abstract void clear();
+
+    // calls index.test for every item that may lie in the box
+    abstract void query(float minX, float minY, float minZ, float maxX, float maxY, float maxZ, SpatialResults results);
+
+    // radius the k-nearest search starts from before doubling
+    abstract float getSearchRadius();
+}
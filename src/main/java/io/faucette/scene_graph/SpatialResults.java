@@ -0,0 +1,131 @@
+package io.faucette.scene_graph;
+
+
+import java.util.Arrays;
+
+
+// reusable result buffer for SpatialIndex queries, keep one per caller (or per thread) and
+// queries allocate nothing once it has grown to the largest result
+public final class SpatialResults {
+    static final int BOX = 0;
+    static final int RADIUS = 1;
+    static final int NEAREST = 2;
+
+    private Entity[] entities;
+    private float[] distances;
+    private int size;
+
+    int mode;
+    int limit;
+    float x;
+    float y;
+    float z;
+    float radiusSquared;
+    float minX;
+    float minY;
+    float minZ;
+    float maxX;
+    float maxY;
+    float maxZ;
+
+    int[] stack;
+
+
+    public SpatialResults() {
+        entities = new Entity[16];
+        distances = new float[16];
+        size = 0;
+        stack = new int[64];
+    }
+
+    public int size() {
+        return size;
+    }
+    public boolean isEmpty() {
+        return size == 0;
+    }
+    public Entity get(int index) {
+        return entities[index];
+    }
+    // squared distance to the query point, 0 for box queries
+    public float getDistanceSquared(int index) {
+        return distances[index];
+    }
+
+    void clear() {
+        Arrays.fill(entities, 0, size, null);
+        size = 0;
+    }
+
+    void add(Entity entity, float distanceSquared) {
+        if (size == entities.length) {
+            entities = Arrays.copyOf(entities, size * 2);
+            distances = Arrays.copyOf(distances, size * 2);
+        }
+        entities[size] = entity;
+        distances[size] = distanceSquared;
+        size++;
+    }
+
+    // keeps the `limit` closest offers as a max heap on distance
+    void offer(Entity entity, float distanceSquared) {
+        if (size < limit) {
+            add(entity, distanceSquared);
+
+            int child = size - 1;
+            while (child > 0) {
+                int parent = (child - 1) >> 1;
+                if (distances[parent] >= distances[child]) {
+                    break;
+                }
+                swap(parent, child);
+                child = parent;
+            }
+        } else if (distanceSquared < distances[0]) {
+            entities[0] = entity;
+            distances[0] = distanceSquared;
+            siftDown(0, size);
+        }
+    }
+    // heap sort the max heap into ascending distance
+    void sortHeap() {
+        for (int end = size - 1; end > 0; end--) {
+            swap(0, end);
+            siftDown(0, end);
+        }
+    }
+
+    int[] stack(int capacity) {
+        if (stack.length < capacity) {
+            stack = Arrays.copyOf(stack, Math.max(capacity, stack.length * 2));
+        }
+        return stack;
+    }
+
+    private void siftDown(int parent, int end) {
+        while (true) {
+            int child = parent * 2 + 1;
+
+            if (child >= end) {
+                break;
+            }
+            if (child + 1 < end && distances[child + 1] > distances[child]) {
+                child++;
+            }
+            if (distances[parent] >= distances[child]) {
+                break;
+            }
+            swap(parent, child);
+            parent = child;
+        }
+    }
+    private void swap(int a, int b) {
+        Entity entity = entities[a];
+        entities[a] = entities[b];
+        entities[b] = entity;
+
+        float distance = distances[a];
+        distances[a] = distances[b];
+        distances[b] = distance;
+    }
+}
@@ -11,6 +11,11 @@ public class Time {
     private double scale;
     private double fixedDelta;
     private double fixedDeltaNoScale;
+    private boolean fixedStepEnabled;
+    private double accumulator;
+    private double alpha;
+    private int maxFixedSteps;
+    private long fixedFrame;
 
     private long fpsFrame;
     private double fpsLastTime;
@@ -29,6 +34,11 @@ public class Time {
         scale = 1d;
         fixedDelta = 1d / 60d;
         fixedDeltaNoScale = 1d / 60d;
+        fixedStepEnabled = false;
+        accumulator = 0d;
+        alpha = 0d;
+        maxFixedSteps = 8;
+        fixedFrame = 0;
 
         fpsFrame = 0;
         fpsLastTime = 0d;
@@ -51,6 +61,20 @@ public class Time {
     }
     public double getFixedDelta() { return fixedDelta; }
 
+    // fixed stepping is opt in, while disabled Scene.update never calls fixedUpdate
+    public void setFixedStepEnabled(boolean enabled) {
+        fixedStepEnabled = enabled;
+    }
+    public boolean isFixedStepEnabled() { return fixedStepEnabled; }
+
+    public void setMaxFixedSteps(int newMaxFixedSteps) {
+        maxFixedSteps = newMaxFixedSteps < 1 ? 1 : newMaxFixedSteps;
+    }
+    public int getMaxFixedSteps() { return maxFixedSteps; }
+
+    public double getAlpha() { return alpha; }
+    public long getFixedFrame() { return fixedFrame; }
+
     public double start() {
         return startTime;
     }
@@ -60,10 +84,12 @@ public class Time {
     }
 
     public void update() {
+        update(now());
+    }
+    void update(double currentTime) {
         frame++;
 
         double lastTime = current;
-        double currentTime = now();
 
         fpsFrame++;
         if (fpsLastTime + 1d < currentTime) {
@@ -76,5 +102,29 @@ public class Time {
         delta = delta < MIN_DELTA ? MIN_DELTA : delta > MAX_DELTA ? MAX_DELTA : delta;
 
         current = currentTime;
+        accumulator += delta;
+    }
+
+    // takes as many fixed steps as fit into the accumulated time, capped at maxFixedSteps
+    // so a slow frame drops time instead of spiralling, alpha is what is left over
+    public int consumeFixedSteps() {
+        if (!fixedStepEnabled || fixedDelta <= 0d) {
+            accumulator = 0d;
+            alpha = 0d;
+            return 0;
+        }
+
+        int steps = (int) (accumulator / fixedDelta);
+
+        if (steps > maxFixedSteps) {
+            steps = maxFixedSteps;
+            accumulator = accumulator % fixedDelta;
+        } else {
+            accumulator -= steps * fixedDelta;
+        }
+
+        fixedFrame += steps;
+        alpha = accumulator / fixedDelta;
+        return steps;
     }
 }
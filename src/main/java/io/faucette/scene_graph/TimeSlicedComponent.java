@@ -0,0 +1,29 @@
+package io.faucette.scene_graph;
+
+
+// a component updated a slice at a time by a TimeSlicedComponentManager, it may skip frames
+// so its work goes in update(elapsed) instead of update()
+public class TimeSlicedComponent extends Component {
+    double sliceElapsed;
+
+
+    public TimeSlicedComponent() {
+        super();
+        sliceElapsed = 0d;
+    }
+
+    @Override
+    public Class<? extends ComponentManager> getComponentManagerClass() {
+        return TimeSlicedComponentManager.class;
+    }
+    @Override
+    public ComponentManager createComponentManager() {
+        return new TimeSlicedComponentManager();
+    }
+
+    // called on this component's turn, elapsed is the scaled time since its previous turn
+    // or since it joined the manager
+    public TimeSlicedComponent update(double elapsed) {
+        return this;
+    }
+}
@@ -0,0 +1,104 @@
+package io.faucette.scene_graph;
+
+
+// updates its active components round-robin from a saved cursor until the frame's budget runs
+// out and resumes there on the next update, so a manager with more work than fits in a frame
+// costs a steady slice of every frame. a budget of 0 is unlimited and at least one component
+// is updated per frame. components leave the active list by swapping, one moved behind the
+// cursor waits a round and sees the longer elapsed time. elapsed time keeps running while no
+// component is active, so one reactivated after a pause is handed the whole pause
+public class TimeSlicedComponentManager extends ComponentManager {
+    private int itemBudget;
+    private double timeBudget;
+    private int cursor;
+    private double elapsed;
+    private int updatedCount;
+
+
+    public TimeSlicedComponentManager() {
+        super();
+
+        itemBudget = 0;
+        timeBudget = 0d;
+        cursor = 0;
+        elapsed = 0d;
+        updatedCount = 0;
+    }
+
+    // most components updated per frame
+    public TimeSlicedComponentManager setItemBudget(int itemBudget) {
+        this.itemBudget = itemBudget < 0 ? 0 : itemBudget;
+        return this;
+    }
+    public int getItemBudget() {
+        return itemBudget;
+    }
+    // seconds per frame, measured with Time.now
+    public TimeSlicedComponentManager setTimeBudget(double timeBudget) {
+        this.timeBudget = timeBudget < 0d ? 0d : timeBudget;
+        return this;
+    }
+    public double getTimeBudget() {
+        return timeBudget;
+    }
+
+    // scaled time this manager has been updated for
+    public double getElapsed() {
+        return elapsed;
+    }
+    // index of the component the next update starts at
+    public int getCursor() {
+        return cursor;
+    }
+    // number of components the last update got through
+    public int getUpdatedCount() {
+        return updatedCount;
+    }
+
+    @Override
+    public <T extends Component> ComponentManager addComponent(T component) {
+        if (!hasComponent(component)) {
+            ((TimeSlicedComponent) component).sliceElapsed = elapsed;
+        }
+        return super.addComponent(component);
+    }
+
+    @Override
+    public TimeSlicedComponentManager update() {
+        updatedCount = 0;
+
+        if (scene == null) {
+            return this;
+        }
+
+        Time time = scene.time;
+
+        elapsed += time.getDelta();
+
+        if (activeComponents.isEmpty()) {
+            return this;
+        }
+
+        int size = activeComponents.size();
+        int count = itemBudget > 0 && itemBudget < size ? itemBudget : size;
+        double end = timeBudget > 0d ? time.now() + timeBudget : 0d;
+
+        while (updatedCount < count) {
+            if (cursor >= size) {
+                cursor = 0;
+            }
+
+            TimeSlicedComponent component = (TimeSlicedComponent) activeComponents.get(cursor++);
+            double since = elapsed - component.sliceElapsed;
+
+            component.sliceElapsed = elapsed;
+            component.update(since);
+            updatedCount++;
+
+            if (timeBudget > 0d && time.now() >= end) {
+                break;
+            }
+        }
+        return this;
+    }
+}
@@ -0,0 +1,207 @@
+package io.faucette.scene_graph;
+
+
+public class Transform extends Component {
+    private float positionX;
+    private float positionY;
+    private float positionZ;
+
+    private float rotationX;
+    private float rotationY;
+    private float rotationZ;
+    private float rotationW;
+
+    private float scaleX;
+    private float scaleY;
+    private float scaleZ;
+
+    int slot;
+    boolean localDirty;
+    boolean queued;
+    boolean stale;
+    int spatialItem;
+
+
+    public Transform() {
+        super();
+
+        positionX = 0f;
+        positionY = 0f;
+        positionZ = 0f;
+
+        rotationX = 0f;
+        rotationY = 0f;
+        rotationZ = 0f;
+        rotationW = 1f;
+
+        scaleX = 1f;
+        scaleY = 1f;
+        scaleZ = 1f;
+
+        slot = -1;
+        localDirty = true;
+        queued = false;
+        stale = false;
+        spatialItem = -1;
+    }
+
+    @Override
+    public Class<? extends ComponentManager> getComponentManagerClass() {
+        return TransformManager.class;
+    }
+    @Override
+    public ComponentManager createComponentManager() {
+        return new TransformManager();
+    }
+
+    public Transform setPosition(float x, float y, float z) {
+        positionX = x;
+        positionY = y;
+        positionZ = z;
+        return setLocalDirty();
+    }
+    public Transform translate(float x, float y, float z) {
+        return setPosition(positionX + x, positionY + y, positionZ + z);
+    }
+    public float[] getPosition(float[] out) {
+        out[0] = positionX;
+        out[1] = positionY;
+        out[2] = positionZ;
+        return out;
+    }
+
+    public Transform setRotation(float x, float y, float z, float w) {
+        rotationX = x;
+        rotationY = y;
+        rotationZ = z;
+        rotationW = w;
+        return setLocalDirty();
+    }
+    public float[] getRotation(float[] out) {
+        out[0] = rotationX;
+        out[1] = rotationY;
+        out[2] = rotationZ;
+        out[3] = rotationW;
+        return out;
+    }
+
+    public Transform setScale(float x, float y, float z) {
+        scaleX = x;
+        scaleY = y;
+        scaleZ = z;
+        return setLocalDirty();
+    }
+    public float[] getScale(float[] out) {
+        out[0] = scaleX;
+        out[1] = scaleY;
+        out[2] = scaleZ;
+        return out;
+    }
+
+    // copies position, rotation and scale from another transform
+    public Transform setLocal(Transform transform) {
+        positionX = transform.positionX;
+        positionY = transform.positionY;
+        positionZ = transform.positionZ;
+
+        rotationX = transform.rotationX;
+        rotationY = transform.rotationY;
+        rotationZ = transform.rotationZ;
+        rotationW = transform.rotationW;
+
+        scaleX = transform.scaleX;
+        scaleY = transform.scaleY;
+        scaleZ = transform.scaleZ;
+
+        return setLocalDirty();
+    }
+
+    public float[] getLocalMatrix(float[] out) {
+        compose(out, 0);
+        return out;
+    }
+
+    // world matrices are maintained by the TransformManager while attached to a scene and
+    // reflect the last Scene.update, detached transforms report their local matrix
+    public float[] getWorldMatrix(float[] out) {
+        if (slot != -1) {
+            ((TransformManager) componentManager).getWorldMatrix(slot, out);
+        } else {
+            compose(out, 0);
+        }
+        return out;
+    }
+    public float getWorldX() {
+        return slot != -1 ? ((TransformManager) componentManager).getWorld(slot, 12) : positionX;
+    }
+    public float getWorldY() {
+        return slot != -1 ? ((TransformManager) componentManager).getWorld(slot, 13) : positionY;
+    }
+    public float getWorldZ() {
+        return slot != -1 ? ((TransformManager) componentManager).getWorld(slot, 14) : positionZ;
+    }
+
+    @Override
+    public Transform hierarchyChanged() {
+        markDirty();
+        return this;
+    }
+    @Override
+    public Transform reset() {
+        positionX = 0f;
+        positionY = 0f;
+        positionZ = 0f;
+
+        rotationX = 0f;
+        rotationY = 0f;
+        rotationZ = 0f;
+        rotationW = 1f;
+
+        scaleX = 1f;
+        scaleY = 1f;
+        scaleZ = 1f;
+
+        return setLocalDirty();
+    }
+
+    private Transform setLocalDirty() {
+        localDirty = true;
+        markDirty();
+        markChanged();
+        return this;
+    }
+    void markDirty() {
+        if (!queued && slot != -1) {
+            queued = true;
+            ((TransformManager) componentManager).enqueue(this);
+        }
+    }
+
+    void compose(float[] out, int offset) {
+        float x = rotationX, y = rotationY, z = rotationZ, w = rotationW;
+        float x2 = x + x, y2 = y + y, z2 = z + z;
+        float xx = x * x2, xy = x * y2, xz = x * z2;
+        float yy = y * y2, yz = y * z2, zz = z * z2;
+        float wx = w * x2, wy = w * y2, wz = w * z2;
+
+        out[offset] = (1f - (yy + zz)) * scaleX;
+        out[offset + 1] = (xy + wz) * scaleX;
+        out[offset + 2] = (xz - wy) * scaleX;
+        out[offset + 3] = 0f;
+
+        out[offset + 4] = (xy - wz) * scaleY;
+        out[offset + 5] = (1f - (xx + zz)) * scaleY;
+        out[offset + 6] = (yz + wx) * scaleY;
+        out[offset + 7] = 0f;
+
+        out[offset + 8] = (xz + wy) * scaleZ;
+        out[offset + 9] = (yz - wx) * scaleZ;
+        out[offset + 10] = (1f - (xx + yy)) * scaleZ;
+        out[offset + 11] = 0f;
+
+        out[offset + 12] = positionX;
+        out[offset + 13] = positionY;
+        out[offset + 14] = positionZ;
+        out[offset + 15] = 1f;
+    }
+}
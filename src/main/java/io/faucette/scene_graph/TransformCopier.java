@@ -0,0 +1,9 @@
+package io.faucette.scene_graph;
+
+
+public class TransformCopier implements ComponentCopier<Transform> {
+    @Override
+    public Transform copy(Transform transform) {
+        return new Transform().setLocal(transform);
+    }
+}
@@ -0,0 +1,300 @@
+package io.faucette.scene_graph;
+
+
+import java.util.Arrays;
+import java.util.List;
+
+
+public class TransformManager extends ComponentManager {
+    private static final int MATRIX_SIZE = 16;
+
+    private float[] locals;
+    private float[] worlds;
+    private int slotCount;
+    private int[] freeSlots;
+    private int freeCount;
+
+    private Transform[] queue;
+    private int queueSize;
+    private long[] order;
+
+    private Entity[] stackEntities;
+    private int[] stackParents;
+
+    private Transform[] updated;
+    private int updatedCount;
+    private long updateCount;
+
+
+    public TransformManager() {
+        super();
+
+        locals = new float[MATRIX_SIZE * 16];
+        worlds = new float[MATRIX_SIZE * 16];
+        slotCount = 0;
+        freeSlots = new int[16];
+        freeCount = 0;
+
+        queue = new Transform[16];
+        queueSize = 0;
+        order = new long[16];
+
+        stackEntities = new Entity[64];
+        stackParents = new int[64];
+
+        updated = new Transform[16];
+        updatedCount = 0;
+        updateCount = 0L;
+    }
+
+    // number of world matrices recomputed by the last update
+    public int getUpdatedCount() {
+        return updatedCount;
+    }
+    // the transforms recomputed by the last update, valid until the next one
+    Transform getUpdated(int index) {
+        return updated[index];
+    }
+    // number of update calls so far, lets readers of getUpdated notice an update they missed
+    long getUpdateCount() {
+        return updateCount;
+    }
+
+    @Override
+    public <T extends Component> ComponentManager addComponent(T component) {
+        super.addComponent(component);
+
+        Transform transform = (Transform) component;
+        if (transform.slot == -1) {
+            transform.componentManager = this;
+            transform.slot = allocateSlot();
+            transform.localDirty = true;
+            transform.markDirty();
+        }
+        return this;
+    }
+    @Override
+    public <T extends Component> ComponentManager removeComponent(T component) {
+        super.removeComponent(component);
+
+        Transform transform = (Transform) component;
+        if (transform.slot != -1) {
+            freeSlot(transform.slot);
+            transform.slot = -1;
+            transform.queued = false;
+            transform.stale = false;
+            transform.localDirty = true;
+
+            // child transforms now resolve to a different parent
+            if (transform.entity != null) {
+                queueChildren(transform.entity);
+            }
+        }
+        return this;
+    }
+
+    @Override
+    void setComponentActive(Component component, boolean active) {
+        super.setComponentActive(component, active);
+
+        Transform transform = (Transform) component;
+        if (transform.stale && transform.activeIndex != -1) {
+            transform.stale = false;
+            transform.markDirty();
+        }
+    }
+
+    @Override
+    public TransformManager update() {
+        Arrays.fill(updated, 0, updatedCount, null);
+        updatedCount = 0;
+        updateCount++;
+
+        if (queueSize == 0) {
+            return this;
+        }
+
+        // shallowest first, so a queued ancestor recomputes its queued descendants in the same pass
+        if (order.length < queueSize) {
+            order = new long[queue.length];
+        }
+        int count = 0;
+        for (int i = 0; i < queueSize; i++) {
+            Transform transform = queue[i];
+
+            if (transform.queued && transform.slot != -1 && transform.entity != null) {
+                // inactive transforms keep their last world matrix and catch up when reactivated
+                if (transform.activeIndex == -1) {
+                    transform.stale = true;
+                } else {
+                    order[count++] = ((long) transform.entity.getDepth() << 32) | i;
+                }
+            }
+        }
+        Arrays.sort(order, 0, count);
+
+        for (int i = 0; i < count; i++) {
+            Transform transform = queue[(int) order[i]];
+
+            if (transform.queued) {
+                updateSubtree(transform);
+            }
+        }
+
+        for (int i = 0; i < queueSize; i++) {
+            queue[i].queued = false;
+            queue[i] = null;
+        }
+        queueSize = 0;
+
+        return this;
+    }
+
+    // transforms are moved from update(), which may run on pool threads
+    synchronized void enqueue(Transform transform) {
+        if (queueSize == queue.length) {
+            queue = Arrays.copyOf(queue, queueSize * 2);
+        }
+        queue[queueSize++] = transform;
+    }
+
+    void getWorldMatrix(int slot, float[] out) {
+        System.arraycopy(worlds, slot * MATRIX_SIZE, out, 0, MATRIX_SIZE);
+    }
+    float getWorld(int slot, int index) {
+        return worlds[slot * MATRIX_SIZE + index];
+    }
+
+    private void updateSubtree(Transform transform) {
+        updateWorld(transform, parentSlot(transform.entity));
+        int size = pushChildren(transform.entity, transform.slot, 0);
+
+        while (size > 0) {
+            size--;
+            Entity entity = stackEntities[size];
+            int parentSlot = stackParents[size];
+            stackEntities[size] = null;
+
+            Transform child = entity.getComponent(Transform.class);
+
+            if (child != null && child.slot != -1) {
+                // an inactive transform's subtree waits for it to be reactivated
+                if (child.activeIndex == -1) {
+                    child.stale = true;
+                    continue;
+                }
+                updateWorld(child, parentSlot);
+                parentSlot = child.slot;
+            }
+            size = pushChildren(entity, parentSlot, size);
+        }
+    }
+
+    private void updateWorld(Transform transform, int parentSlot) {
+        int slot = transform.slot;
+
+        if (transform.localDirty) {
+            transform.localDirty = false;
+            transform.compose(locals, slot * MATRIX_SIZE);
+        }
+        if (parentSlot == -1) {
+            System.arraycopy(locals, slot * MATRIX_SIZE, worlds, slot * MATRIX_SIZE, MATRIX_SIZE);
+        } else {
+            multiplyAffine(worlds, parentSlot * MATRIX_SIZE, locals, slot * MATRIX_SIZE, worlds, slot * MATRIX_SIZE);
+        }
+
+        transform.queued = false;
+
+        if (updatedCount == updated.length) {
+            updated = Arrays.copyOf(updated, updatedCount * 2);
+        }
+        updated[updatedCount++] = transform;
+    }
+
+    private int pushChildren(Entity entity, int parentSlot, int size) {
+        List<Entity> children = entity.children;
+
+        for (int i = children.size() - 1; i >= 0; i--) {
+            if (size == stackEntities.length) {
+                stackEntities = Arrays.copyOf(stackEntities, size * 2);
+                stackParents = Arrays.copyOf(stackParents, size * 2);
+            }
+            stackEntities[size] = children.get(i);
+            stackParents[size] = parentSlot;
+            size++;
+        }
+        return size;
+    }
+
+    private void queueChildren(Entity entity) {
+        EntityStack stack = EntityStack.acquire();
+
+        try {
+            stack.pushChildren(entity);
+
+            while (!stack.isEmpty()) {
+                Entity current = stack.pop();
+                Transform transform = current.getComponent(Transform.class);
+
+                if (transform != null && transform.slot != -1) {
+                    transform.markDirty();
+                } else {
+                    stack.pushChildren(current);
+                }
+            }
+        } finally {
+            stack.release();
+        }
+    }
+
+    private static int parentSlot(Entity entity) {
+        for (Entity parent = entity.getParent(); parent != null; parent = parent.getParent()) {
+            Transform transform = parent.getComponent(Transform.class);
+
+            if (transform != null && transform.slot != -1) {
+                return transform.slot;
+            }
+        }
+        return -1;
+    }
+
+    private int allocateSlot() {
+        if (freeCount > 0) {
+            return freeSlots[--freeCount];
+        }
+        if ((slotCount + 1) * MATRIX_SIZE > locals.length) {
+            locals = Arrays.copyOf(locals, locals.length * 2);
+            worlds = Arrays.copyOf(worlds, worlds.length * 2);
+        }
+        return slotCount++;
+    }
+    private void freeSlot(int slot) {
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+        }
+        freeSlots[freeCount++] = slot;
+    }
+
+    // out = a * b for column major affine matrices, out may alias neither a nor b
+    private static void multiplyAffine(float[] a, int ai, float[] b, int bi, float[] out, int oi) {
+        for (int column = 0; column < 3; column++) {
+            float b0 = b[bi + column * 4];
+            float b1 = b[bi + column * 4 + 1];
+            float b2 = b[bi + column * 4 + 2];
+
+            out[oi + column * 4] = a[ai] * b0 + a[ai + 4] * b1 + a[ai + 8] * b2;
+            out[oi + column * 4 + 1] = a[ai + 1] * b0 + a[ai + 5] * b1 + a[ai + 9] * b2;
+            out[oi + column * 4 + 2] = a[ai + 2] * b0 + a[ai + 6] * b1 + a[ai + 10] * b2;
+            out[oi + column * 4 + 3] = 0f;
+        }
+
+        float b12 = b[bi + 12];
+        float b13 = b[bi + 13];
+        float b14 = b[bi + 14];
+
+        out[oi + 12] = a[ai] * b12 + a[ai + 4] * b13 + a[ai + 8] * b14 + a[ai + 12];
+        out[oi + 13] = a[ai + 1] * b12 + a[ai + 5] * b13 + a[ai + 9] * b14 + a[ai + 13];
+        out[oi + 14] = a[ai + 2] * b12 + a[ai + 6] * b13 + a[ai + 10] * b14 + a[ai + 14];
+        out[oi + 15] = 1f;
+    }
+}
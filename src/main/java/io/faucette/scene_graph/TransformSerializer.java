@@ -0,0 +1,46 @@
+package io.faucette.scene_graph;
+
+
+import java.nio.ByteBuffer;
+
+
+public class TransformSerializer implements ComponentSerializer<Transform> {
+    // one per thread, a registry is shared by snapshot writers and delta encoders on any thread
+    private static final ThreadLocal<float[]> scratches = new ThreadLocal<float[]>() {
+        @Override
+        protected float[] initialValue() {
+            return new float[4];
+        }
+    };
+
+
+    @Override
+    public int size(Transform transform) {
+        return 10 * 4;
+    }
+
+    @Override
+    public void write(Transform transform, ByteBuffer out) {
+        float[] scratch = scratches.get();
+
+        transform.getPosition(scratch);
+        out.putFloat(scratch[0]).putFloat(scratch[1]).putFloat(scratch[2]);
+        transform.getRotation(scratch);
+        out.putFloat(scratch[0]).putFloat(scratch[1]).putFloat(scratch[2]).putFloat(scratch[3]);
+        transform.getScale(scratch);
+        out.putFloat(scratch[0]).putFloat(scratch[1]).putFloat(scratch[2]);
+    }
+
+    @Override
+    public Transform create() {
+        return new Transform();
+    }
+
+    @Override
+    public void read(Transform transform, ByteBuffer in) {
+        transform
+            .setPosition(in.getFloat(), in.getFloat(), in.getFloat())
+            .setRotation(in.getFloat(), in.getFloat(), in.getFloat(), in.getFloat())
+            .setScale(in.getFloat(), in.getFloat(), in.getFloat());
+    }
+}
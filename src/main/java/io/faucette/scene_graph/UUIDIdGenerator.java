@@ -0,0 +1,28 @@
+package io.faucette.scene_graph;
+
+
+import java.util.UUID;
+
+
+// entities added to a scene using this generator also get a random UUID, kept whole on
+// Entity.getUUID and found with Scene.getEntity(UUID). the long ids stay sequential so
+// they never collide, the UUID is the identity that is unique across processes
+public class UUIDIdGenerator implements IdGenerator {
+    private final SequentialIdGenerator ids;
+
+
+    public UUIDIdGenerator(long start) {
+        ids = new SequentialIdGenerator(start);
+    }
+    public UUIDIdGenerator() {
+        this(1L);
+    }
+
+    @Override
+    public long next() {
+        return ids.next();
+    }
+    public UUID nextUUID() {
+        return UUID.randomUUID();
+    }
+}
@@ -0,0 +1,194 @@
+package io.faucette.scene_graph;
+
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+
+class UpdateScheduler {
+    private final ForkJoinPool pool;
+    private List<Level> levels;
+    private boolean dirty;
+
+
+    public UpdateScheduler(ForkJoinPool pool) {
+        this.pool = pool;
+        levels = new ArrayList<>();
+        dirty = true;
+    }
+
+    public ForkJoinPool getPool() {
+        return pool;
+    }
+
+    public void invalidate() {
+        dirty = true;
+    }
+
+    public void update(List<Plugin> plugins, List<ComponentManager> componentManagers, FrameProfiler profiler) {
+        run(plugins, componentManagers, false, profiler);
+    }
+    public void fixedUpdate(List<Plugin> plugins, List<ComponentManager> componentManagers, FrameProfiler profiler) {
+        run(plugins, componentManagers, true, profiler);
+    }
+
+    private void run(List<Plugin> plugins, List<ComponentManager> componentManagers, boolean fixed, FrameProfiler profiler) {
+        if (dirty) {
+            dirty = false;
+            build(plugins, componentManagers);
+        }
+
+        for (int i = 0, il = levels.size(); i < il; i++) {
+            Level level = levels.get(i);
+
+            if (level.tasks.length == 1) {
+                level.tasks[0].execute(fixed, profiler);
+            } else {
+                level.fixed = fixed;
+                level.profiler = profiler;
+                level.reinitialize();
+                pool.invoke(level);
+            }
+        }
+    }
+
+    private void build(List<Plugin> plugins, List<ComponentManager> componentManagers) {
+        List<Task> tasks = new ArrayList<>(plugins.size() + componentManagers.size());
+
+        for (Plugin plugin: plugins) {
+            tasks.add(new PluginTask(plugin));
+        }
+        for (ComponentManager componentManager: componentManagers) {
+            tasks.add(new ComponentManagerTask(componentManager));
+        }
+
+        // each task runs one level after the latest earlier task it conflicts with,
+        // so conflicting tasks keep their getOrder() order
+        int count = tasks.size();
+        int[] depths = new int[count];
+        int levelCount = 0;
+
+        for (int i = 0; i < count; i++) {
+            Access access = tasks.get(i).access;
+            int depth = 0;
+
+            for (int j = 0; j < i; j++) {
+                if (depths[j] >= depth && access.conflicts(tasks.get(j).access)) {
+                    depth = depths[j] + 1;
+                }
+            }
+
+            depths[i] = depth;
+            levelCount = Math.max(levelCount, depth + 1);
+        }
+
+        levels.clear();
+        for (int depth = 0; depth < levelCount; depth++) {
+            List<Task> levelTasks = new ArrayList<>();
+
+            for (int i = 0; i < count; i++) {
+                if (depths[i] == depth) {
+                    levelTasks.add(tasks.get(i));
+                }
+            }
+            levels.add(new Level(levelTasks.toArray(new Task[levelTasks.size()])));
+        }
+    }
+
+
+    private static class Level extends RecursiveAction {
+        private final Task[] tasks;
+        private boolean fixed;
+        private FrameProfiler profiler;
+
+
+        public Level(Task[] tasks) {
+            this.tasks = tasks;
+            fixed = false;
+            profiler = null;
+        }
+
+        @Override
+        protected void compute() {
+            for (Task task: tasks) {
+                task.fixed = fixed;
+                task.profiler = profiler;
+                task.reinitialize();
+            }
+            ForkJoinTask.invokeAll(tasks);
+        }
+    }
+
+    private static abstract class Task extends RecursiveAction {
+        protected final Access access;
+        private final Class<?> systemClass;
+        private boolean fixed;
+        private FrameProfiler profiler;
+
+
+        public Task(Access access, Class<?> systemClass) {
+            this.access = access;
+            this.systemClass = systemClass;
+            fixed = false;
+            profiler = null;
+        }
+
+        public abstract void run(boolean fixed);
+
+        public void execute(boolean fixed, FrameProfiler profiler) {
+            if (profiler == null) {
+                run(fixed);
+            } else {
+                long start = System.nanoTime();
+                run(fixed);
+                profiler.record(systemClass, System.nanoTime() - start);
+            }
+        }
+
+        @Override
+        protected void compute() {
+            execute(fixed, profiler);
+        }
+    }
+
+    private static class PluginTask extends Task {
+        private final Plugin plugin;
+
+
+        public PluginTask(Plugin plugin) {
+            super(plugin.access, plugin.getClass());
+            this.plugin = plugin;
+        }
+
+        @Override
+        public void run(boolean fixed) {
+            if (fixed) {
+                plugin.fixedUpdate();
+            } else {
+                plugin.update();
+            }
+        }
+    }
+
+    private static class ComponentManagerTask extends Task {
+        private final ComponentManager componentManager;
+
+
+        public ComponentManagerTask(ComponentManager componentManager) {
+            super(componentManager.access, componentManager.getClass());
+            this.componentManager = componentManager;
+        }
+
+        @Override
+        public void run(boolean fixed) {
+            if (fixed) {
+                componentManager.fixedUpdate();
+            } else {
+                componentManager.update();
+            }
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package io.faucette.scene_graph;
+
+
+import java.util.Iterator;
+
+import static org.junit.Assert.*;
+import org.junit.*;
+
+
+public class ComponentManagerTest {
+    @Test
+    public void testSwapRemove() {
+        ComponentManager manager = new ComponentManager();
+        Component a = new Component();
+        Component b = new Component();
+        Component c = new Component();
+
+        manager.addComponent(a);
+        manager.addComponent(b);
+        manager.addComponent(c);
+        manager.addComponent(b);
+
+        assertTrue(manager.hasComponent(a));
+        assertTrue(manager.hasComponent(b));
+        assertTrue(manager.hasComponent(c));
+
+        manager.removeComponent(a);
+        assertFalse(manager.hasComponent(a));
+        assertTrue(manager.hasComponent(b));
+        assertTrue(manager.hasComponent(c));
+
+        Iterator<? extends Component> it = manager.iterator();
+        assertEquals(c, it.next());
+        assertEquals(b, it.next());
+        assertFalse(it.hasNext());
+
+        manager.removeComponent(a);
+        manager.removeComponent(b);
+        manager.removeComponent(c);
+        assertTrue(manager.isEmpty());
+    }
+    @Test
+    public void testInactiveComponentsSkipUpdate() {
+        ComponentManager manager = new ComponentManager();
+        UpdateCountComponent a = new UpdateCountComponent();
+        UpdateCountComponent b = new UpdateCountComponent();
+        UpdateCountComponent c = new UpdateCountComponent();
+
+        manager.addComponent(a);
+        manager.addComponent(b);
+        b.setActive(false);
+        manager.setComponentActive(b, false);
+        manager.addComponent(c);
+        assertEquals(2, manager.getActiveCount());
+
+        manager.update();
+        assertEquals(1, a.updates);
+        assertEquals(0, b.updates);
+        assertEquals(1, c.updates);
+
+        manager.setComponentActive(b, true);
+        manager.setComponentActive(a, false);
+        manager.removeComponent(c);
+        manager.update();
+        assertEquals(1, a.updates);
+        assertEquals(1, b.updates);
+        assertEquals(1, c.updates);
+        assertEquals(1, manager.getActiveCount());
+    }
+    @Test
+    public void testOrderedActiveListKeepsSortOrder() {
+        ComponentManager manager = new OrderedComponentManager();
+        OrderedComponent[] components = new OrderedComponent[6];
+
+        for (int i = 5; i >= 0; i--) {
+            components[i] = new OrderedComponent(i);
+            manager.addComponent(components[i]);
+        }
+        manager.sort();
+
+        manager.setComponentActive(components[1], false);
+        manager.setComponentActive(components[4], false);
+        manager.setComponentActive(components[1], true);
+        assertTrue(manager.isDirty());
+        manager.sort();
+
+        assertEquals(5, manager.getActiveCount());
+        int last = -1;
+        for (Component component: manager.activeComponents) {
+            assertTrue(((OrderedComponent) component).value > last);
+            last = ((OrderedComponent) component).value;
+        }
+    }
+    @Test
+    public void testOrderedRemoveKeepsSortOrder() {
+        ComponentManager manager = new OrderedComponentManager();
+
+        for (int i = 4; i >= 0; i--) {
+            manager.addComponent(new OrderedComponent(i));
+        }
+        manager.sort();
+
+        Iterator<? extends Component> it = manager.iterator();
+        it.next();
+        manager.removeComponent(it.next());
+
+        int last = -1;
+        it = manager.iterator();
+        while (it.hasNext()) {
+            OrderedComponent component = (OrderedComponent) it.next();
+            assertTrue(component.value > last);
+            assertTrue(manager.hasComponent(component));
+            last = component.value;
+        }
+    }
+    @Test
+    public void testStableOrderMergesNewcomers() {
+        ComponentManager manager = new StableComponentManager();
+
+        for (int i = 0; i < 10; i += 2) {
+            manager.addComponent(new OrderedComponent(i));
+        }
+        manager.sort();
+        assertFalse(manager.isDirty());
+
+        manager.addComponent(new OrderedComponent(7));
+        manager.addComponent(new OrderedComponent(1));
+        manager.addComponent(new OrderedComponent(11));
+        assertTrue(manager.isDirty());
+
+        manager.sort();
+        assertFalse(manager.isDirty());
+
+        int[] expected = {0, 1, 2, 4, 6, 7, 8, 11};
+        Iterator<? extends Component> it = manager.iterator();
+        for (int value: expected) {
+            OrderedComponent component = (OrderedComponent) it.next();
+            assertEquals(value, component.value);
+            assertTrue(manager.hasComponent(component));
+        }
+        assertFalse(it.hasNext());
+    }
+    @Test
+    public void testSceneSortsOncePerUpdate() {
+        Scene scene = new Scene();
+        scene.init();
+
+        for (int i = 0; i < 100; i++) {
+            Entity entity = new Entity();
+            entity.addComponent(new OrderedComponent(100 - i));
+            scene.addEntity(entity);
+        }
+        scene.update();
+
+        CountingComponentManager manager = (CountingComponentManager) scene.getComponentManager(OrderedComponentManager.class);
+        assertEquals(1, manager.sorts);
+
+        int last = -1;
+        Iterator<? extends Component> it = manager.iterator();
+        while (it.hasNext()) {
+            OrderedComponent component = (OrderedComponent) it.next();
+            assertTrue(component.value > last);
+            last = component.value;
+        }
+
+        scene.update();
+        assertEquals(1, manager.sorts);
+    }
+}
+
+class UpdateCountComponent extends Component {
+    public int updates;
+
+
+    @Override
+    public UpdateCountComponent update() {
+        updates++;
+        return this;
+    }
+}
+
+class OrderedComponent extends Component {
+    public int value;
+
+
+    public OrderedComponent(int value) {
+        super();
+        this.value = value;
+    }
+    @Override
+    public Class<? extends ComponentManager> getComponentManagerClass() {
+        return OrderedComponentManager.class;
+    }
+    @Override
+    public ComponentManager createComponentManager() {
+        return new CountingComponentManager();
+    }
+    @Override
+    public int compareTo(Component component) {
+        return Integer.compare(value, ((OrderedComponent) component).value);
+    }
+}
+
+class OrderedComponentManager extends ComponentManager {
+    @Override
+    public boolean isOrdered() {
+        return true;
+    }
+}
+
+class StableComponentManager extends OrderedComponentManager {
+    @Override
+    public boolean isOrderStable() {
+        return true;
+    }
+}
+
+class CountingComponentManager extends OrderedComponentManager {
+    public int sorts;
+
+
+    public CountingComponentManager() {
+        super();
+        sorts = 0;
+    }
+    @Override
+    public ComponentManager sort() {
+        sorts++;
+        return super.sort();
+    }
+}
@@ -0,0 +1,161 @@
+package io.faucette.scene_graph;
+
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+
+import static org.junit.Assert.*;
+import org.junit.*;
+
+
+public class DeltaTest {
+    private static final float EPSILON = 0.0001f;
+
+
+    @Test
+    public void testMirrorFollowsSource() throws IOException {
+        ComponentSerializers serializers = new ComponentSerializers();
+        Scene source = new Scene();
+        Scene mirror = new Scene();
+        DeltaEncoder encoder = new DeltaEncoder(source, serializers);
+        DeltaDecoder decoder = new DeltaDecoder(mirror, serializers);
+        LocalTransport transport = new LocalTransport();
+
+        source.init();
+        mirror.init();
+
+        Entity root = new Entity("root");
+        Entity child = new Entity("child").setTag("enemy");
+        Transform childTransform = new Transform().setPosition(0f, 1f, 0f);
+        root.addComponent(new Transform().setPosition(1f, 0f, 0f));
+        child.addComponent(childTransform);
+        child.addComponent(new TestComponent());
+        root.addChild(child);
+        source.addEntity(root);
+        tick(source, encoder, transport, decoder, mirror);
+
+        Entity mirrorRoot = decoder.getEntity(root.getId());
+        Entity mirrorChild = decoder.getEntity(child.getId());
+        assertTrue(mirror.hasEntity(mirrorRoot));
+        assertEquals(mirrorRoot, mirrorChild.getParent());
+        assertTrue(mirrorChild.compareTag("enemy"));
+        assertFalse(mirrorChild.hasComponent(TestComponent.class));
+        assertEquals(1f, mirrorChild.getComponent(Transform.class).getWorldX(), EPSILON);
+        assertEquals(1f, mirrorChild.getComponent(Transform.class).getWorldY(), EPSILON);
+
+        childTransform.translate(0f, 0f, 2f);
+        int size = tick(source, encoder, transport, decoder, mirror);
+        // one component change, not the whole scene
+        assertEquals(12 + 15 + 40 + 1, size);
+        assertEquals(2f, mirrorChild.getComponent(Transform.class).getWorldZ(), EPSILON);
+
+        assertEquals(13, tick(source, encoder, transport, decoder, mirror));
+
+        child.setTag("friend");
+        child.removeComponent(childTransform);
+        tick(source, encoder, transport, decoder, mirror);
+        assertTrue(mirrorChild.compareTag("friend"));
+        assertFalse(mirrorChild.hasComponent(Transform.class));
+
+        root.removeChild(child);
+        tick(source, encoder, transport, decoder, mirror);
+        assertFalse(mirror.hasEntity(mirrorChild));
+        assertNull(decoder.getEntity(child.getId()));
+        assertTrue(mirror.hasEntity(mirrorRoot));
+
+        source.removeEntity(root);
+        tick(source, encoder, transport, decoder, mirror);
+        assertFalse(mirror.hasEntity(mirrorRoot));
+        assertEquals(0, mirror.getEntityCount());
+    }
+    @Test
+    public void testMirrorStartsFromSnapshot() throws IOException {
+        ComponentSerializers serializers = new ComponentSerializers();
+        Scene source = new Scene();
+        Scene mirror = new Scene();
+        Entity root = new Entity("root");
+        Entity child = new Entity("child");
+        Transform childTransform = new Transform();
+
+        root.addComponent(new Transform());
+        child.addComponent(childTransform);
+        root.addChild(child);
+        source.addEntity(root);
+        source.init();
+        mirror.init();
+
+        // the snapshot and the encoder start at the same point
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new SceneSnapshot(serializers).write(source, Channels.newChannel(bytes));
+        DeltaEncoder encoder = new DeltaEncoder(source, serializers);
+        DeltaDecoder decoder = new DeltaDecoder(mirror, serializers);
+        LocalTransport transport = new LocalTransport();
+
+        List<Entity> roots = new SceneSnapshot(serializers).read(ByteBuffer.wrap(bytes.toByteArray()), mirror);
+        decoder.track(roots);
+        mirror.update();
+
+        Entity mirrorRoot = decoder.getEntity(root.getId());
+        Entity mirrorChild = decoder.getEntity(child.getId());
+        assertSame(roots.get(0), mirrorRoot);
+        assertEquals(mirrorRoot, mirrorChild.getParent());
+
+        childTransform.setPosition(3f, 0f, 0f);
+        child.setTag("enemy");
+        child.addComponent(new TestComponent());
+        tick(source, encoder, transport, decoder, mirror);
+        assertEquals(3f, mirrorChild.getComponent(Transform.class).getWorldX(), EPSILON);
+        assertTrue(mirrorChild.compareTag("enemy"));
+
+        root.removeComponent(root.getComponent(Transform.class));
+        tick(source, encoder, transport, decoder, mirror);
+        assertFalse(mirrorRoot.hasComponent(Transform.class));
+
+        source.removeEntity(root);
+        tick(source, encoder, transport, decoder, mirror);
+        assertFalse(mirror.hasEntity(mirrorRoot));
+        assertFalse(mirror.hasEntity(mirrorChild));
+        assertEquals(0, mirror.getEntityCount());
+    }
+    @Test(expected = IOException.class)
+    public void testRejectsMissedDeltas() throws IOException {
+        ComponentSerializers serializers = new ComponentSerializers();
+        Scene source = new Scene();
+        DeltaEncoder encoder = new DeltaEncoder(source, serializers);
+        DeltaDecoder decoder = new DeltaDecoder(new Scene(), serializers);
+
+        encoder.encode();
+        decoder.decode(encoder.encode());
+    }
+
+    private static int tick(Scene source, DeltaEncoder encoder, LocalTransport transport, DeltaDecoder decoder, Scene mirror) throws IOException {
+        source.update();
+        transport.send(encoder.encode());
+
+        ByteBuffer delta = transport.receive();
+        int size = delta.remaining();
+        decoder.decode(delta);
+        mirror.update();
+        return size;
+    }
+
+
+    private static class LocalTransport {
+        private final Queue<ByteBuffer> queue = new ArrayDeque<>();
+
+
+        public void send(ByteBuffer delta) {
+            ByteBuffer copy = ByteBuffer.allocate(delta.remaining());
+            copy.put(delta).flip();
+            queue.add(copy);
+        }
+        public ByteBuffer receive() {
+            return queue.poll();
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package io.faucette.scene_graph;
+
+
+import static org.junit.Assert.*;
+import org.junit.*;
+
+
+public class EntityPoolTest {
+    @Test
+    public void testDespawnedEntitiesAreRecycled() {
+        Scene scene = new Scene();
+        EntityPool pool = new EntityPool(scene, new EntityPool.Factory() {
+            @Override
+            public Entity create() {
+                Entity entity = new Entity();
+                Entity child = new Entity();
+
+                entity.addComponent(new Transform());
+                child.addComponent(new Transform());
+                entity.addChild(child);
+                return entity;
+            }
+        });
+
+        pool.prewarm(2);
+        assertEquals(2, pool.getFreeCount());
+
+        scene.init();
+
+        Entity entity = pool.spawn();
+        Transform transform = entity.getComponent(Transform.class);
+        scene.update();
+
+        assertTrue(scene.hasEntity(entity));
+        assertTrue(scene.hasEntity(entity.getChildren().get(0)));
+        long id = entity.getId();
+
+        transform.setPosition(5f, 0f, 0f);
+        pool.despawn(entity);
+        assertEquals(1, pool.getFreeCount());
+        scene.update();
+
+        assertFalse(scene.hasEntity(entity));
+        assertFalse(scene.hasEntity(entity.getChildren().get(0)));
+        assertEquals(2, pool.getFreeCount());
+        assertEquals(0f, transform.getWorldX(), 0f);
+
+        for (int i = 0; i < 10; i++) {
+            Entity spawned = pool.spawn();
+            scene.update();
+            pool.despawn(spawned);
+            scene.update();
+        }
+        assertEquals(2, pool.getCreatedCount());
+
+        Entity respawned = pool.spawn();
+        scene.update();
+        assertTrue(scene.hasEntity(respawned));
+        assertTrue(id != respawned.getId());
+    }
+    @Test
+    public void testDespawnChildBeforeInit() {
+        Scene scene = new Scene();
+        Entity parent = new Entity();
+        EntityPool pool = new EntityPool(scene, new EntityPool.Factory() {
+            @Override
+            public Entity create() {
+                return new Entity().addComponent(new TestComponent());
+            }
+        });
+
+        scene.addEntity(parent);
+
+        Entity entity = pool.spawn();
+        parent.addChild(entity);
+        assertTrue(scene.hasEntity(entity));
+
+        pool.despawn(entity);
+        assertFalse(entity.hasParent());
+        assertFalse(scene.hasEntity(entity));
+        assertEquals(1, pool.getFreeCount());
+    }
+    @Test
+    public void testDoubleDespawnRecyclesOnce() {
+        Scene scene = new Scene();
+        EntityPool pool = new EntityPool(scene, new EntityPool.Factory() {
+            @Override
+            public Entity create() {
+                return new Entity().addComponent(new TestComponent());
+            }
+        });
+
+        scene.init();
+
+        Entity entity = pool.spawn();
+        scene.update();
+
+        pool.despawn(entity);
+        scene.update();
+        assertEquals(1, pool.getFreeCount());
+
+        pool.despawn(entity);
+        scene.update();
+        assertEquals(1, pool.getFreeCount());
+
+        Entity a = pool.spawn();
+        Entity b = pool.spawn();
+        scene.update();
+        assertNotSame(a, b);
+        assertTrue(scene.hasEntity(a));
+        assertTrue(scene.hasEntity(b));
+        assertEquals(2, pool.getCreatedCount());
+
+        // despawning the respawned entity still works
+        pool.despawn(a);
+        scene.update();
+        assertFalse(scene.hasEntity(a));
+        assertEquals(1, pool.getFreeCount());
+    }
+}
@@ -0,0 +1,129 @@
+package io.faucette.scene_graph;
+
+
+import static org.junit.Assert.*;
+import org.junit.*;
+
+
+public class EntityTest {
+    private static final int DEPTH = 100000;
+
+
+    private static Entity[] chain(int depth) {
+        Entity[] entities = new Entity[depth];
+
+        entities[0] = new Entity();
+        for (int i = 1; i < depth; i++) {
+            entities[i] = new Entity();
+            entities[i].addComponent(new Component());
+            entities[i - 1].addChild(entities[i]);
+        }
+        return entities;
+    }
+
+    @Test
+    public void testDeepHierarchyDepthAndRoot() {
+        Entity[] entities = chain(DEPTH);
+        Entity leaf = entities[DEPTH - 1];
+
+        assertEquals(DEPTH - 1, leaf.getDepth());
+        assertEquals(entities[0], leaf.getRoot());
+
+        Entity root = new Entity();
+        Entity pivot = new Entity();
+        root.addChild(pivot);
+        pivot.addChild(entities[0]);
+
+        assertEquals(DEPTH + 1, leaf.getDepth());
+        assertEquals(root, leaf.getRoot());
+
+        entities[DEPTH / 2].detach();
+        assertEquals(DEPTH - 1 - DEPTH / 2, leaf.getDepth());
+        assertEquals(entities[DEPTH / 2], leaf.getRoot());
+        assertEquals(root, entities[DEPTH / 2 - 1].getRoot());
+    }
+    @Test
+    public void testDeepHierarchyAddedToAndRemovedFromScene() {
+        Entity[] entities = chain(DEPTH);
+        Scene scene = new Scene();
+
+        scene.addEntity(entities[0]);
+        assertTrue(scene.hasEntity(entities[DEPTH - 1]));
+        assertEquals(DEPTH - 1, scene.query(Component.class).size());
+
+        scene.init();
+        scene.removeEntity(entities[0]);
+        scene.update();
+
+        assertFalse(scene.hasEntity(entities[DEPTH - 1]));
+        assertTrue(scene.query(Component.class).isEmpty());
+    }
+    @Test
+    public void testDeepHierarchyClear() {
+        Entity[] entities = chain(DEPTH);
+        Scene scene = new Scene();
+
+        scene.addEntity(entities[0]);
+        entities[0].clear();
+
+        Entity leaf = entities[DEPTH - 1];
+        assertFalse(leaf.hasParent());
+        assertEquals(leaf, leaf.getRoot());
+        assertEquals(0, leaf.getDepth());
+        assertFalse(leaf.hasComponent(Component.class));
+        assertTrue(entities[0].getChildren().isEmpty());
+    }
+    @Test
+    public void testInactiveEntitiesSkipUpdate() {
+        Scene scene = new Scene();
+        Entity parent = new Entity();
+        Entity child = new Entity();
+        Entity grandchild = new Entity();
+        Entity other = new Entity();
+        UpdateCountComponent parentComponent = new UpdateCountComponent();
+        UpdateCountComponent childComponent = new UpdateCountComponent();
+        UpdateCountComponent grandchildComponent = new UpdateCountComponent();
+
+        parent.addComponent(parentComponent);
+        child.addComponent(childComponent);
+        grandchild.addComponent(grandchildComponent);
+        other.addComponent(new UpdateCountComponent());
+        child.addChild(grandchild);
+        parent.addChild(child);
+        scene.addEntity(parent);
+        scene.addEntity(other);
+        scene.init();
+
+        ComponentManager manager = parentComponent.getComponentManager();
+
+        parent.setActive(false);
+        assertFalse(grandchild.isActiveInHierarchy());
+        assertTrue(grandchild.isActiveSelf());
+        scene.update();
+        assertEquals(1, manager.getActiveCount());
+        assertEquals(0, grandchildComponent.updates);
+        assertTrue(scene.hasEntity(grandchild));
+
+        // an active child of an inactive parent stays inactive
+        child.setActive(false);
+        child.setActive(true);
+        scene.update();
+        assertEquals(0, childComponent.updates);
+
+        parent.setActive(true);
+        scene.update();
+        assertEquals(4, manager.getActiveCount());
+        assertEquals(1, grandchildComponent.updates);
+
+        // moving under an inactive entity deactivates, a component can sleep on its own
+        other.setActive(false);
+        other.addChild(grandchild);
+        childComponent.setActive(false);
+        scene.update();
+        assertFalse(grandchildComponent.isActive());
+        assertEquals(1, grandchildComponent.updates);
+        assertEquals(1, childComponent.updates);
+        assertEquals(2, parentComponent.updates);
+        assertEquals(1, manager.getActiveCount());
+    }
+}
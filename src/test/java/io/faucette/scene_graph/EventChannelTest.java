@@ -0,0 +1,132 @@
+package io.faucette.scene_graph;
+
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import org.junit.*;
+
+
+public class EventChannelTest {
+    private static final EventChannel.Factory<DamageEvent> FACTORY = new EventChannel.Factory<DamageEvent>() {
+        @Override
+        public DamageEvent create() {
+            return new DamageEvent();
+        }
+    };
+
+    @Test
+    public void testQueuedEventsAreDeliveredInUpdate() {
+        Scene scene = new Scene();
+        final List<Integer> received = new ArrayList<>();
+        final EventChannel<DamageEvent> channel = scene.getEventChannel(DamageEvent.class, FACTORY);
+
+        channel.addListener(new EventListener<DamageEvent>() {
+            @Override
+            public void onEvent(DamageEvent event) {
+                received.add(event.amount);
+
+                // queued during delivery, waits for the next point
+                if (event.amount == 1) {
+                    channel.queue().amount = 2;
+                }
+            }
+        });
+        assertEquals(channel, scene.getEventChannel(DamageEvent.class));
+
+        scene.init();
+
+        channel.queue().amount = 1;
+        assertTrue(received.isEmpty());
+
+        scene.update();
+        assertEquals(2, received.size());
+        assertEquals(1, (int) received.get(0));
+        assertEquals(2, (int) received.get(1));
+        assertEquals(0, channel.getQueuedCount());
+    }
+
+    @Test
+    public void testBubbling() {
+        Scene scene = new Scene();
+        Entity root = new Entity("root");
+        Entity child = new Entity("child");
+        Entity leaf = new Entity("leaf");
+        final List<String> order = new ArrayList<>();
+        EventChannel<DamageEvent> channel = scene.getEventChannel(DamageEvent.class, FACTORY).setBubbles(true);
+
+        child.addChild(leaf);
+        root.addChild(child);
+        scene.addEntity(root);
+        scene.init();
+
+        EventListener<DamageEvent> record = new EventListener<DamageEvent>() {
+            @Override
+            public void onEvent(DamageEvent event) {
+                order.add(event.getCurrentTarget() == null ? "channel" : event.getCurrentTarget().getName());
+
+                if (event.amount == 0 && event.getCurrentTarget() == event.getTarget().getParent()) {
+                    event.stopPropagation();
+                }
+            }
+        };
+        channel.addListener(leaf, record);
+        channel.addListener(child, record);
+        channel.addListener(root, record);
+        channel.addListener(record);
+
+        channel.queue(leaf).amount = 5;
+        scene.update();
+        assertEquals("[leaf, child, root, channel]", order.toString());
+
+        order.clear();
+        channel.queue(leaf).amount = 0;
+        scene.update();
+        assertEquals("[leaf, child]", order.toString());
+
+        order.clear();
+        channel.setBubbles(false);
+        channel.removeListener(leaf, record);
+        channel.queue(leaf).amount = 5;
+        scene.update();
+        assertEquals("[channel]", order.toString());
+    }
+
+    @Test
+    public void testEventsArePooled() {
+        Scene scene = new Scene();
+        EventChannel<DamageEvent> channel = scene.getEventChannel(DamageEvent.class, FACTORY).prewarm(4);
+        Entity entity = new Entity();
+
+        scene.addEntity(entity);
+        scene.init();
+
+        DamageEvent first = channel.queue(entity);
+        first.amount = 3;
+        scene.update();
+
+        assertNull(first.getTarget());
+        assertEquals(0, first.amount);
+
+        // the two pools alternate, so the event comes back every other frame
+        DamageEvent second = channel.queue(entity);
+        scene.update();
+        DamageEvent third = channel.queue(entity);
+        scene.update();
+
+        assertTrue(second != first);
+        assertTrue(third == first);
+    }
+}
+
+class DamageEvent extends Event {
+    public int amount;
+
+
+    @Override
+    public DamageEvent reset() {
+        amount = 0;
+        return this;
+    }
+}
@@ -0,0 +1,137 @@
+package io.faucette.scene_graph;
+
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.management.ObjectName;
+
+import static org.junit.Assert.*;
+import org.junit.*;
+
+
+public class FrameProfilerTest {
+    @Test
+    public void testRecordsSystemsFlushAndStructuralChanges() {
+        Scene scene = new Scene();
+        FrameProfiler profiler = new FrameProfiler(4);
+        final AtomicInteger slowFrames = new AtomicInteger(0);
+
+        profiler.setSlowFrameThreshold(1L);
+        profiler.setSlowFrameListener(new FrameProfiler.SlowFrameListener() {
+            @Override
+            public void onSlowFrame(FrameProfiler profiler, long frameNanos) {
+                slowFrames.incrementAndGet();
+            }
+        });
+        scene.setProfiler(profiler);
+        scene.addPlugin(new TestPlugin());
+        scene.init();
+
+        Entity entity = new Entity();
+        entity.addComponent(new TestComponent());
+        scene.addEntity(entity);
+        scene.update();
+
+        assertEquals(2L, profiler.getStructuralChangeSamples().getLast());
+        assertEquals(1, profiler.getSamples(TestPlugin.class).getCount());
+        assertEquals(1, profiler.getSamples(TestComponentManager.class).getCount());
+
+        for (int i = 0; i < 5; i++) {
+            scene.update();
+        }
+
+        assertEquals(0L, profiler.getStructuralChangeSamples().getLast());
+        assertEquals(6L, profiler.getFrameCount());
+        assertEquals(4, profiler.getFrameSamples().getCount());
+        assertEquals(6, slowFrames.get());
+        assertTrue(profiler.getFrameSamples().getPercentile(0.5d) <= profiler.getFrameSamples().getMax());
+        assertTrue(profiler.getFlushSamples().getMax() <= profiler.getFrameSamples().getMax());
+    }
+    @Test
+    public void testEventDispatchIsNotCountedAsFlush() {
+        final long listenerNanos = 20000000L;
+        Scene scene = new Scene();
+        FrameProfiler profiler = new FrameProfiler(4);
+        EventChannel<DamageEvent> channel = scene.getEventChannel(DamageEvent.class, new EventChannel.Factory<DamageEvent>() {
+            @Override
+            public DamageEvent create() {
+                return new DamageEvent();
+            }
+        });
+
+        channel.addListener(new EventListener<DamageEvent>() {
+            @Override
+            public void onEvent(DamageEvent event) {
+                long end = System.nanoTime() + listenerNanos;
+                while (System.nanoTime() < end) {
+                    // busy listener
+                }
+            }
+        });
+        scene.setProfiler(profiler);
+        scene.init();
+
+        channel.queue().amount = 1;
+        scene.update();
+
+        assertTrue(profiler.getSamples(EventChannel.class).getLast() >= listenerNanos);
+        assertTrue(profiler.getFlushSamples().getLast() < listenerNanos);
+    }
+    @Test
+    public void testOnlySamplesSystemsThatRan() {
+        Scene scene = new Scene();
+        FrameProfiler profiler = new FrameProfiler(4);
+        TestPlugin plugin = new TestPlugin();
+        Entity entity = new Entity();
+        TestComponent component = new TestComponent();
+
+        scene.setProfiler(profiler);
+        scene.addPlugin(plugin);
+        entity.addComponent(component);
+        scene.addEntity(entity);
+        scene.init();
+        scene.update();
+        scene.update();
+
+        assertEquals(2, profiler.getSamples(TestComponentManager.class).getCount());
+
+        // removing the last component drops the manager and its samples
+        scene.removeComponent(entity, component);
+        scene.update();
+        scene.update();
+        assertNull(profiler.getSamples(TestComponentManager.class));
+        assertEquals(4, profiler.getSamples(TestPlugin.class).getCount());
+
+        scene.removePlugin(plugin);
+        scene.update();
+        assertNull(profiler.getSamples(TestPlugin.class));
+        for (FrameProfiler.Samples samples: profiler.getSystemSamples()) {
+            assertFalse(samples.getName().equals(TestPlugin.class.getName()));
+        }
+
+        // a system that is registered but skips a frame gets no sample for it
+        profiler.record(TestPlugin.class, 5L);
+        scene.update();
+        scene.update();
+        assertEquals(1, profiler.getSamples(TestPlugin.class).getCount());
+        assertEquals(5L, profiler.getSamples(TestPlugin.class).getLast());
+    }
+    @Test
+    public void testRegistersWithPlatformMBeanServer() throws Exception {
+        Scene scene = new Scene();
+        FrameProfiler profiler = new FrameProfiler();
+
+        scene.setProfiler(profiler);
+        scene.addPlugin(new TestPlugin());
+        scene.init();
+        scene.update();
+
+        profiler.register("test");
+        try {
+            ObjectName name = new ObjectName(FrameProfiler.DOMAIN + ":type=FrameProfiler,name=" + ObjectName.quote("test"));
+            assertEquals(1L, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "FrameCount"));
+        } finally {
+            profiler.unregister();
+        }
+    }
+}
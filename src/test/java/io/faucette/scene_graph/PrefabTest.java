@@ -0,0 +1,106 @@
+package io.faucette.scene_graph;
+
+
+import static org.junit.Assert.*;
+import org.junit.*;
+
+
+public class PrefabTest {
+    private static Entity createSquad() {
+        Entity leader = new Entity("leader");
+        leader.addComponent(new Transform().setPosition(1f, 0f, 0f));
+        leader.addComponent(new TestComponent());
+
+        for (int i = 0; i < 3; i++) {
+            Entity member = new Entity("member");
+            Entity weapon = new Entity();
+
+            member.setTag("member");
+            member.addComponent(new Transform().setPosition(0f, i, 0f));
+            weapon.addComponent(new Transform().setPosition(0f, 0f, 2f));
+            member.addChild(weapon);
+            leader.addChild(member);
+        }
+        return leader;
+    }
+    private static ComponentCopiers createCopiers() {
+        return new ComponentCopiers().register(TestComponent.class, new ComponentCopier<TestComponent>() {
+            @Override
+            public TestComponent copy(TestComponent component) {
+                return new TestComponent();
+            }
+        });
+    }
+
+    @Test
+    public void testInstantiate() {
+        Entity source = createSquad();
+        Prefab prefab = new Prefab(source, createCopiers());
+        Scene scene = new Scene();
+
+        assertEquals(7, prefab.getEntityCount());
+        assertEquals(8, prefab.getComponentCount());
+
+        source.getComponent(Transform.class).setPosition(9f, 9f, 9f);
+
+        Entity[] roots = prefab.instantiate(scene, 10);
+        scene.init();
+        scene.update();
+
+        assertEquals(10, roots.length);
+        assertEquals(70, scene.getEntityCount());
+        assertEquals(10, scene.query(TestComponent.class).size());
+        assertEquals(30, scene.getEntitiesByTag("member").size());
+
+        for (Entity root: roots) {
+            assertNull(root.getParent());
+            assertEquals("leader", root.getName());
+            assertEquals(3, root.getChildren().size());
+            assertEquals(1f, root.getComponent(Transform.class).getWorldX(), 0f);
+
+            for (int i = 0; i < 3; i++) {
+                Entity member = root.getChildren().get(i);
+                Entity weapon = member.getChildren().get(0);
+
+                assertTrue(scene.hasEntity(weapon));
+                assertEquals(root, weapon.getRoot());
+                assertEquals(2, weapon.getDepth());
+                assertEquals(i, member.getComponent(Transform.class).getWorldY(), 0f);
+                assertEquals(2f, weapon.getComponent(Transform.class).getWorldZ(), 0f);
+                assertTrue(weapon.getComponent(Transform.class) != source.getChildren().get(i).getChildren().get(0).getComponent(Transform.class));
+            }
+        }
+        assertEquals(roots[0].getComponent(Transform.class).getComponentManager(), roots[9].getChildren().get(2).getComponent(Transform.class).getComponentManager());
+    }
+
+    @Test
+    public void testInstantiateAfterInitIsDeferred() {
+        Prefab prefab = new Prefab(createSquad(), createCopiers());
+        Scene scene = new Scene();
+
+        scene.init();
+
+        Entity[] roots = prefab.instantiate(scene, 2);
+        assertFalse(scene.hasEntity(roots[0]));
+
+        // edits made before the flush are honoured
+        Entity member = roots[0].getChildren().get(0);
+        roots[0].removeChild(member);
+        roots[1].getChildren().get(1).addChild(new Entity("extra").addComponent(new Transform()));
+        roots[1].removeComponent(roots[1].getComponent(TestComponent.class));
+
+        scene.update();
+
+        assertEquals(13, scene.getEntityCount());
+        assertFalse(scene.hasEntity(member));
+        assertFalse(scene.hasEntity(member.getChildren().get(0)));
+        assertTrue(scene.hasEntity(scene.getEntity("extra")));
+        assertTrue(scene.getEntity("extra").getComponent(Transform.class).hasComponentManager());
+        assertEquals(1, scene.query(TestComponent.class).size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMissingCopier() {
+        new Prefab(createSquad());
+    }
+}
@@ -0,0 +1,153 @@
+package io.faucette.scene_graph;
+
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+import org.junit.*;
+
+
+public class SceneHostTest {
+    private static final long TIMEOUT_SECONDS = 10L;
+
+
+    @Test
+    public void testTicksScenesConfined() throws InterruptedException {
+        SceneHost host = new SceneHost();
+        TickPlugin[] plugins = new TickPlugin[64];
+        SceneHost.HostedScene[] hosted = new SceneHost.HostedScene[plugins.length];
+        CountDownLatch ticked = new CountDownLatch(plugins.length);
+        // before the adds, a scene's first tick can be due as soon as it is added
+        long started = System.nanoTime();
+
+        for (int i = 0; i < plugins.length; i++) {
+            Scene scene = new Scene();
+
+            plugins[i] = new TickPlugin(3, ticked);
+            scene.addPlugin(plugins[i]);
+            hosted[i] = host.add(scene, 100d);
+        }
+
+        host.start();
+        assertTrue(ticked.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        host.stop();
+        long elapsed = System.nanoTime() - started;
+
+        for (int i = 0; i < plugins.length; i++) {
+            assertTrue(plugins[i].ticks.get() >= 3);
+            // 100Hz, a scene never ticks ahead of its rate
+            assertTrue(plugins[i].ticks.get() <= elapsed / 10000000L + 1L);
+            assertFalse(plugins[i].overlapped);
+            // stop waited for the ticks in flight
+            assertEquals(plugins[i].ticks.get(), hosted[i].getTickCount());
+            assertTrue(hosted[i].getMaxTickNanos() >= hosted[i].getAverageTickNanos());
+            assertNull(hosted[i].getError());
+        }
+    }
+
+    @Test
+    public void testExecuteAndRemove() throws InterruptedException {
+        final SceneHost host = new SceneHost();
+        final Scene scene = new Scene();
+        final AtomicInteger ticksSeen = new AtomicInteger(-1);
+        final SceneHost.HostedScene[] hosted = new SceneHost.HostedScene[1];
+        final TickPlugin plugin = new TickPlugin(2, null) {
+            @Override
+            public TickPlugin update() {
+                super.update();
+
+                // removed while its own tick runs, the tick must not put it back
+                if (ticks.get() == 2) {
+                    host.remove(hosted[0]);
+                }
+                return this;
+            }
+        };
+        Scene witnessScene = new Scene();
+        CountDownLatch witnessed = new CountDownLatch(1);
+
+        scene.addPlugin(plugin);
+        hosted[0] = host.add(scene, 1000d);
+        hosted[0].execute(new Runnable() {
+            @Override
+            public void run() {
+                ticksSeen.set(plugin.ticks.get());
+                scene.addEntity(new Entity("spawned"));
+            }
+        });
+
+        host.start();
+        assertTrue(plugin.reached.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        // a second scene at the same rate keeps ticking while the removed one stays put
+        witnessScene.addPlugin(new TickPlugin(20, witnessed));
+        host.add(witnessScene, 1000d);
+        assertTrue(witnessed.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        host.stop();
+
+        assertEquals(0, ticksSeen.get());
+        assertTrue(hosted[0].isRemoved());
+        assertEquals(1, host.size());
+        assertEquals(2, plugin.ticks.get());
+        assertEquals(2L, hosted[0].getTickCount());
+        assertNotNull(scene.getEntity("spawned"));
+    }
+
+    @Test
+    public void testFailingSceneIsRemoved() throws InterruptedException {
+        SceneHost host = new SceneHost();
+        Scene scene = new Scene();
+        final CountDownLatch failed = new CountDownLatch(1);
+
+        scene.addPlugin(new Plugin() {
+            @Override
+            public Plugin update() {
+                failed.countDown();
+                throw new IllegalStateException("broken");
+            }
+        });
+        SceneHost.HostedScene hosted = host.add(scene, 1000d);
+
+        host.start();
+        assertTrue(failed.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        host.stop();
+
+        assertTrue(hosted.isRemoved());
+        assertEquals(0, host.size());
+        assertEquals("broken", hosted.getError().getMessage());
+    }
+}
+
+// counts down reached, and the optional shared latch, once it has ticked target times
+class TickPlugin extends Plugin {
+    public final AtomicInteger ticks = new AtomicInteger();
+    public final CountDownLatch reached = new CountDownLatch(1);
+    public volatile boolean overlapped;
+    private final AtomicInteger inside = new AtomicInteger();
+    private final int target;
+    private final CountDownLatch all;
+
+
+    TickPlugin(int target, CountDownLatch all) {
+        this.target = target;
+        this.all = all;
+    }
+
+    @Override
+    public TickPlugin update() {
+        if (inside.incrementAndGet() != 1) {
+            overlapped = true;
+        }
+        if (ticks.incrementAndGet() == target) {
+            reached.countDown();
+
+            if (all != null) {
+                all.countDown();
+            }
+        }
+        inside.decrementAndGet();
+        return this;
+    }
+}
@@ -0,0 +1,139 @@
+package io.faucette.scene_graph;
+
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+import org.junit.*;
+
+
+public class SceneSnapshotTest {
+    @Test
+    public void testWriteAndLoadRoundTrip() throws IOException {
+        Scene scene = new Scene();
+        Entity root = new Entity("root");
+        Entity child = new Entity("child").setTag("enemy");
+        Entity grandchild = new Entity();
+        Entity other = new Entity("other");
+
+        root.addComponent(new Transform().setPosition(1f, 2f, 3f));
+        child.addComponent(new Transform().setScale(2f, 2f, 2f));
+        child.addComponent(new TestComponent());
+        grandchild.addComponent(new Transform().setPosition(0f, 0f, 1f));
+        child.addChild(grandchild);
+        root.addChild(child);
+        scene.addEntity(root);
+        scene.addEntity(other);
+
+        SceneSnapshot snapshot = new SceneSnapshot()
+            .register(TestComponent.class, new ComponentSerializer<TestComponent>() {
+                public int size(TestComponent component) {
+                    return 0;
+                }
+                public void write(TestComponent component, ByteBuffer out) {}
+                public TestComponent create() {
+                    return new TestComponent();
+                }
+                public void read(TestComponent component, ByteBuffer in) {}
+            })
+            .setBufferSize(64);
+
+        Path path = Files.createTempFile("scene", ".snapshot");
+        try {
+            snapshot.write(scene, path);
+
+            Scene loaded = new Scene();
+            List<Entity> roots = snapshot.load(path, loaded);
+            loaded.update();
+
+            assertEquals(2, roots.size());
+            assertEquals(4, loaded.getEntityCount());
+
+            Entity loadedRoot = loaded.getEntity("root");
+            Entity loadedChild = loaded.getEntity("child");
+            Entity loadedGrandchild = loadedChild.getChildren().get(0);
+
+            assertEquals(root.getId(), loadedRoot.getId());
+            assertEquals(loadedRoot, loadedChild.getParent());
+            assertTrue(loadedChild.compareTag("enemy"));
+            assertTrue(loadedChild.hasComponent(TestComponent.class));
+            assertTrue(loaded.getEntitiesByTag("enemy").contains(loadedChild));
+            assertFalse(loaded.getEntity("other").hasParent());
+
+            Transform transform = loadedGrandchild.getComponent(Transform.class);
+            assertEquals(1f, transform.getWorldX(), 0.0001f);
+            assertEquals(3f + 2f, transform.getWorldZ(), 0.0001f);
+        } finally {
+            Files.delete(path);
+        }
+    }
+    @Test
+    public void testTransformSerializerIsSharedBetweenThreads() throws InterruptedException {
+        final TransformSerializer serializer = new TransformSerializer();
+        final AtomicInteger mismatches = new AtomicInteger(0);
+
+        Thread[] threads = new Thread[2];
+        for (int t = 0; t < threads.length; t++) {
+            final float value = t + 1f;
+
+            threads[t] = new Thread(new Runnable() {
+                public void run() {
+                    Transform transform = new Transform()
+                        .setPosition(value, value, value)
+                        .setScale(value, value, value);
+                    ByteBuffer buffer = ByteBuffer.allocate(serializer.size(transform));
+                    float[] position = new float[3];
+
+                    for (int i = 0; i < 10000; i++) {
+                        buffer.clear();
+                        serializer.write(transform, buffer);
+                        buffer.flip();
+
+                        Transform copy = serializer.create();
+                        serializer.read(copy, buffer);
+                        if (copy.getPosition(position)[0] != value || position[2] != value) {
+                            mismatches.incrementAndGet();
+                        }
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread: threads) {
+            thread.join();
+        }
+        assertEquals(0, mismatches.get());
+    }
+    @Test(expected = IOException.class)
+    public void testRejectsUnknownComponentTypes() throws IOException {
+        Scene scene = new Scene();
+        Entity entity = new Entity();
+        entity.addComponent(new TestComponent());
+        scene.addEntity(entity);
+
+        SceneSnapshot writer = new SceneSnapshot()
+            .register(TestComponent.class, new ComponentSerializer<TestComponent>() {
+                public int size(TestComponent component) {
+                    return 0;
+                }
+                public void write(TestComponent component, ByteBuffer out) {}
+                public TestComponent create() {
+                    return new TestComponent();
+                }
+                public void read(TestComponent component, ByteBuffer in) {}
+            });
+
+        Path path = Files.createTempFile("scene", ".snapshot");
+        try {
+            writer.write(scene, path);
+            new SceneSnapshot().load(path, new Scene());
+        } finally {
+            Files.delete(path);
+        }
+    }
+}
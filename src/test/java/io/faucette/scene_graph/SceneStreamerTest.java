@@ -0,0 +1,185 @@
+package io.faucette.scene_graph;
+
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+import org.junit.*;
+
+
+public class SceneStreamerTest {
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(Runnable runnable) {
+            runnable.run();
+        }
+    };
+    // two roots, the first with three children
+    private static final SceneStreamer.Loader LOADER = new SceneStreamer.Loader() {
+        @Override
+        public List<Entity> load(String key) throws Exception {
+            if (key.equals("missing")) {
+                throw new Exception("no region " + key);
+            }
+
+            List<Entity> roots = new ArrayList<>();
+            Entity root = new Entity(key);
+
+            root.addComponent(new Transform());
+            for (int i = 0; i < 3; i++) {
+                root.addChild(new Entity().addComponent(new Transform().setPosition(i, 0f, 0f)));
+            }
+            roots.add(root);
+            roots.add(new Entity().addComponent(new Transform()));
+            return roots;
+        }
+    };
+
+    @Test
+    public void testLoadAndUnloadOneEntityPerFrame() {
+        Scene scene = new Scene();
+        SceneStreamer streamer = new SceneStreamer(LOADER, DIRECT).setBudget(0d);
+
+        scene.addPlugin(streamer);
+        scene.init();
+
+        SceneStreamer.Region region = streamer.load("a");
+        assertEquals(5, region.getEntityCount());
+
+        for (int i = 1; i <= 5; i++) {
+            scene.update();
+            assertEquals(i, scene.getEntityCount());
+        }
+        assertTrue(region.isLoaded());
+        assertTrue(streamer.isIdle());
+
+        Entity root = scene.getEntity("a");
+        assertEquals(3, root.getChildren().size());
+        assertEquals(2f, root.getChildren().get(2).getComponent(Transform.class).getWorldX(), 0f);
+
+        streamer.unload("a");
+        for (int i = 4; i >= 0; i--) {
+            scene.update();
+            assertEquals(i, scene.getEntityCount());
+        }
+        assertEquals(SceneStreamer.Region.UNLOADED, region.getState());
+        assertNull(streamer.getRegion("a"));
+        assertFalse(scene.hasEntity(root));
+    }
+
+    @Test
+    public void testUnloadOnlyDetachesWhatTheRegionStillOwns() {
+        Scene scene = new Scene();
+        SceneStreamer streamer = new SceneStreamer(LOADER, DIRECT).setBudget(0d);
+        Entity player = new Entity("player");
+
+        scene.addEntity(player);
+        scene.addPlugin(streamer);
+        scene.init();
+
+        SceneStreamer.Region region = streamer.load("a");
+        while (!region.isLoaded()) {
+            scene.update();
+        }
+
+        Entity root = scene.getEntity("a");
+        Entity despawned = root.getChildren().get(0);
+        Entity moved = root.getChildren().get(1);
+        Entity kept = root.getChildren().get(2);
+        Entity readded = null;
+        for (int i = 0, il = scene.getEntityCount(); i < il; i++) {
+            Entity entity = scene.getEntityAt(i);
+            if (entity != root && entity != player && !entity.hasParent()) {
+                readded = entity;
+            }
+        }
+        Entity foreign = new Entity("foreign");
+        Entity foreignChild = new Entity("foreignChild");
+        foreign.addChild(foreignChild);
+        root.addChild(foreign);
+
+        EntityPool pool = new EntityPool(scene, null);
+        pool.despawn(despawned);
+        player.addChild(moved);
+        scene.removeEntity(readded);
+        scene.update();
+        assertSame(despawned, pool.spawn());
+        scene.addEntity(readded);
+        scene.update();
+
+        streamer.unload("a");
+        while (streamer.getRegion("a") != null) {
+            scene.update();
+        }
+
+        assertFalse(scene.hasEntity(root));
+        assertFalse(scene.hasEntity(kept));
+        assertFalse(scene.hasEntity(foreign));
+        assertFalse(scene.hasEntity(foreignChild));
+        assertTrue(scene.hasEntity(despawned));
+        assertTrue(scene.hasEntity(readded));
+        assertTrue(scene.hasEntity(moved));
+        assertEquals(player, moved.getParent());
+        assertEquals(4, scene.getEntityCount());
+    }
+    @Test
+    public void testUnloadWhileAttaching() {
+        Scene scene = new Scene();
+        SceneStreamer streamer = new SceneStreamer(LOADER, DIRECT).setBudget(0d);
+
+        scene.addPlugin(streamer);
+        scene.init();
+
+        SceneStreamer.Region region = streamer.load("a");
+        scene.update();
+        scene.update();
+        assertEquals(2, region.getAttachedCount());
+
+        streamer.unload("a");
+        scene.update();
+        scene.update();
+        assertEquals(0, scene.getEntityCount());
+        assertEquals(SceneStreamer.Region.UNLOADED, region.getState());
+
+        streamer.load("a");
+        scene.update();
+        assertEquals(1, scene.getEntityCount());
+    }
+
+    @Test
+    public void testFailedLoad() {
+        Scene scene = new Scene();
+        SceneStreamer streamer = new SceneStreamer(LOADER, DIRECT);
+
+        scene.addPlugin(streamer);
+        scene.init();
+
+        SceneStreamer.Region region = streamer.load("missing");
+        scene.update();
+
+        assertEquals(SceneStreamer.Region.FAILED, region.getState());
+        assertEquals("no region missing", region.getError().getMessage());
+        assertEquals(0, scene.getEntityCount());
+    }
+
+    @Test
+    public void testLoadsOnBackgroundThread() throws InterruptedException {
+        Scene scene = new Scene();
+        SceneStreamer streamer = new SceneStreamer(LOADER).setBudget(1d);
+
+        scene.addPlugin(streamer);
+        scene.init();
+
+        SceneStreamer.Region region = streamer.load("a");
+        for (int i = 0; i < 1000 && !region.isLoaded(); i++) {
+            Thread.sleep(1);
+            scene.update();
+        }
+
+        assertTrue(region.isLoaded());
+        assertEquals(5, scene.getEntityCount());
+        streamer.destroy();
+    }
+}
@@ -4,6 +4,7 @@ package io.faucette.scene_graph;
 import java.util.Iterator;
 import io.faucette.event_emitter.Emitter;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.*;
 import org.junit.*;
@@ -33,6 +34,255 @@ public class SceneTest {
         assertTrue(!scene.hasEntity(child));
     }
     @Test
+    public void testEntityHandles() {
+        Scene scene = new Scene();
+        Entity a = new Entity();
+        Entity b = new Entity();
+
+        scene.addEntity(a);
+        scene.addEntity(b);
+
+        long handle = a.getHandle();
+        assertEquals(a, scene.getEntityByHandle(handle));
+        assertEquals(b, scene.getEntityByHandle(b.getHandle()));
+
+        scene.removeEntity(a);
+        assertEquals(-1L, a.getHandle());
+        assertNull(scene.getEntityByHandle(handle));
+        assertEquals(b, scene.getEntityByHandle(b.getHandle()));
+
+        Entity c = new Entity();
+        scene.addEntity(c);
+        assertNull(scene.getEntityByHandle(handle));
+        assertEquals(c, scene.getEntityByHandle(c.getHandle()));
+    }
+    @Test
+    public void testEntityIds() {
+        Scene scene = new Scene();
+        Entity[] entities = new Entity[1000];
+
+        for (int i = 0; i < entities.length; i++) {
+            entities[i] = new Entity();
+            assertFalse(entities[i].hasId());
+            scene.addEntity(entities[i]);
+            assertEquals(i + 1, entities[i].getId());
+        }
+        for (int i = 0; i < entities.length; i += 2) {
+            scene.removeEntity(entities[i]);
+        }
+        for (int i = 0; i < entities.length; i++) {
+            Entity expected = i % 2 == 0 ? null : entities[i];
+            assertEquals(expected, scene.getEntityById(entities[i].getId()));
+        }
+
+        assertFalse(entities[1].hasUUID());
+
+        Scene other = new Scene().setIdGenerator(new UUIDIdGenerator());
+        Entity entity = new Entity();
+        other.addEntity(entity);
+        assertTrue(entity.hasId());
+        assertTrue(entity.hasUUID());
+        assertEquals(entity, other.getEntityById(entity.getId()));
+        assertEquals(entity, other.getEntity(entity.getUUID()));
+        assertTrue(scene.getId() != other.getId());
+
+        // the UUID follows the entity into scenes using other generators
+        other.removeEntity(entity);
+        assertNull(other.getEntity(entity.getUUID()));
+        scene.addEntity(entity);
+        assertEquals(entity, scene.getEntity(entity.getUUID()));
+    }
+    @Test
+    public void testQueryIsKeptUpToDate() {
+        Scene scene = new Scene();
+        Entity a = new Entity();
+        Entity b = new Entity();
+        Entity c = new Entity();
+
+        a.addComponent(new TestComponent());
+        a.addComponent(new Component());
+        b.addComponent(new TestComponent());
+        scene.addEntity(a);
+        scene.addEntity(b);
+        scene.addEntity(c);
+
+        Query query = scene.query(TestComponent.class, Component.class);
+        assertSame(query, scene.query(Component.class, TestComponent.class));
+        assertEquals(1, query.size());
+        assertEquals(a, query.get(0));
+
+        b.addComponent(new Component());
+        assertEquals(2, query.size());
+        assertTrue(query.contains(b));
+
+        a.removeComponent(a.getComponent(TestComponent.class));
+        assertEquals(1, query.size());
+        assertFalse(query.contains(a));
+
+        scene.init();
+        scene.removeEntity(b);
+        scene.update();
+        assertTrue(query.isEmpty());
+    }
+    @Test
+    public void testTagIndex() {
+        Scene scene = new Scene();
+        Entity a = new Entity().setTag("enemy");
+        Entity b = new Entity();
+        Entity c = new Entity().setTag("enemy");
+
+        scene.addEntity(a);
+        scene.addEntity(b);
+
+        EntitySet enemies = scene.getEntitiesByTag("enemy");
+        assertEquals(1, enemies.size());
+        assertTrue(enemies.contains(a));
+
+        b.setTag("enemy");
+        scene.addEntity(c);
+        assertEquals(3, enemies.size());
+
+        a.setTag("friend");
+        assertFalse(enemies.contains(a));
+        assertTrue(scene.getEntitiesByTag("friend").contains(a));
+
+        scene.removeEntity(b);
+        assertFalse(enemies.contains(b));
+
+        final AtomicInteger count = new AtomicInteger(0);
+        scene.forEachWithTag("enemy", new EntityVisitor() {
+            public void visit(Entity entity) {
+                assertTrue(entity.compareTag("enemy"));
+                count.incrementAndGet();
+            }
+        });
+        assertEquals(1, count.get());
+    }
+    @Test
+    public void testUnknownTagsAreNotIndexed() {
+        Scene scene = new Scene();
+        Entity a = new Entity();
+
+        scene.addEntity(a);
+
+        EntitySet missing = scene.getEntitiesByTag("missing");
+        assertTrue(missing.isEmpty());
+        assertSame(missing, scene.getEntitiesByTag("misspelled"));
+
+        a.setTag("missing");
+        assertTrue(missing.isEmpty());
+        assertNotSame(missing, scene.getEntitiesByTag("missing"));
+        assertTrue(scene.getEntitiesByTag("missing").contains(a));
+        assertTrue(scene.getEntitiesByTag("misspelled").isEmpty());
+    }
+    @Test
+    public void testStructuralChangesApplyInOrder() {
+        Scene scene = new Scene();
+        Entity a = new Entity();
+        Entity b = new Entity();
+
+        scene.addEntity(b);
+        scene.init();
+
+        scene.addEntity(a);
+        scene.removeEntity(a);
+        scene.removeEntity(b);
+        scene.addEntity(b);
+        assertFalse(scene.hasEntity(a));
+        scene.update();
+
+        assertFalse(scene.hasEntity(a));
+        assertTrue(scene.hasEntity(b));
+
+        TestComponent component = new TestComponent();
+        scene.addComponent(b, component);
+        scene.setParent(a, b);
+        scene.update();
+
+        assertTrue(scene.hasEntity(a));
+        assertEquals(b, a.getParent());
+        assertEquals(scene.getComponentManager(TestComponentManager.class), component.getComponentManager());
+
+        scene.setParent(a, null);
+        scene.removeComponent(b, component);
+        scene.update();
+
+        assertTrue(scene.hasEntity(a));
+        assertFalse(a.hasParent());
+        assertFalse(b.hasComponent(TestComponent.class));
+    }
+    @Test
+    public void testStructuralChangesFromOtherThreads() throws InterruptedException {
+        final Scene scene = new Scene();
+        final Entity[] entities = new Entity[1000];
+
+        scene.init();
+
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final int offset = t * entities.length / threads.length;
+
+            threads[t] = new Thread(new Runnable() {
+                public void run() {
+                    for (int i = offset, il = offset + entities.length / 4; i < il; i++) {
+                        entities[i] = new Entity();
+                        scene.addEntity(entities[i]);
+                        scene.addComponent(entities[i], new TestComponent());
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread: threads) {
+            thread.join();
+        }
+
+        scene.update();
+
+        for (Entity entity: entities) {
+            assertTrue(scene.hasEntity(entity));
+            assertTrue(entity.hasComponent(TestComponent.class));
+        }
+        assertEquals(entities.length, scene.query(TestComponent.class).size());
+    }
+    @Test
+    public void testUpdatesMovingBetweenThreads() throws InterruptedException {
+        final Scene scene = new Scene();
+        final Object updating = new Object();
+        final Entity[] entities = new Entity[10000];
+
+        scene.init();
+
+        // like a scene on a pool, the last thread to update adds while another one updates
+        Thread[] threads = new Thread[2];
+        for (int t = 0; t < threads.length; t++) {
+            final int offset = t * entities.length / threads.length;
+
+            threads[t] = new Thread(new Runnable() {
+                public void run() {
+                    for (int i = offset, il = offset + entities.length / 2; i < il; i++) {
+                        synchronized (updating) {
+                            scene.update();
+                        }
+                        entities[i] = new Entity();
+                        scene.addEntity(entities[i]);
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread: threads) {
+            thread.join();
+        }
+
+        scene.update();
+
+        for (Entity entity: entities) {
+            assertTrue(scene.hasEntity(entity));
+        }
+        assertEquals(entities.length, scene.getEntityCount());
+    }
+    @Test
     public void testEvents() {
         Scene scene = new Scene();
         Entity entity = new Entity("name");
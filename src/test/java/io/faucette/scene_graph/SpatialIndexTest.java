@@ -0,0 +1,138 @@
+package io.faucette.scene_graph;
+
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+import org.junit.*;
+
+
+public class SpatialIndexTest {
+    @Test
+    public void testGridMatchesBruteForce() {
+        checkAgainstBruteForce(new SpatialIndex(new GridPartition(4f)));
+    }
+    @Test
+    public void testOctreeMatchesBruteForce() {
+        // bounds smaller than the scene so some entities live outside them
+        checkAgainstBruteForce(new SpatialIndex(new OctreePartition(0f, 0f, 0f, 40f, 6, 4)));
+    }
+    @Test
+    public void testGridFindsEntitiesBeyondTheWrap() {
+        // cell coordinates past 2^20 wrap, the table scan has to compare them the same way
+        SpatialIndex index = new SpatialIndex(new GridPartition(1f));
+        Scene scene = new Scene();
+        SpatialResults results = new SpatialResults();
+        Entity far = new Entity().addComponent(new Transform().setPosition(1500000f, 0f, 0f));
+        Entity negative = new Entity().addComponent(new Transform().setPosition(-1500000f, 0f, 0f));
+
+        scene.addPlugin(index);
+        scene.addEntity(far);
+        scene.addEntity(negative);
+        scene.init();
+        scene.update();
+        index.refresh();
+
+        // a box of many cells scans the table, a single cell box walks the cells
+        index.box(1499996f, -4f, -4f, 1500004f, 4f, 4f, results);
+        assertEquals(1, results.size());
+        assertSame(far, results.get(0));
+        index.box(1500000f, 0f, 0f, 1500000.5f, 0.5f, 0.5f, results);
+        assertEquals(1, results.size());
+        assertSame(far, results.get(0));
+
+        index.radius(-1500000f, 1f, 0f, 2f, results);
+        assertEquals(1, results.size());
+        assertSame(negative, results.get(0));
+    }
+
+    private static void checkAgainstBruteForce(SpatialIndex index) {
+        Random random = new Random(7);
+        Scene scene = new Scene();
+        Entity[] entities = new Entity[500];
+        SpatialResults results = new SpatialResults();
+
+        scene.addPlugin(index);
+        for (int i = 0; i < entities.length; i++) {
+            entities[i] = new Entity();
+            entities[i].addComponent(new Transform().setPosition(coordinate(random), coordinate(random), coordinate(random)));
+            scene.addEntity(entities[i]);
+        }
+        scene.init();
+        scene.update();
+        index.refresh();
+
+        assertEquals(entities.length, index.size());
+        check(index, scene, entities, results, random);
+
+        for (int i = 0; i < 200; i++) {
+            entities[i].getComponent(Transform.class).setPosition(coordinate(random), coordinate(random), coordinate(random));
+        }
+        for (int i = 200; i < 250; i++) {
+            scene.removeEntity(entities[i]);
+        }
+        scene.update();
+        index.refresh();
+
+        assertEquals(entities.length - 50, index.size());
+        assertFalse(index.contains(entities[200]));
+        check(index, scene, entities, results, random);
+    }
+
+    private static void check(SpatialIndex index, Scene scene, Entity[] entities, SpatialResults results, Random random) {
+        for (int query = 0; query < 50; query++) {
+            float x = coordinate(random);
+            float y = coordinate(random);
+            float z = coordinate(random);
+            float radius = random.nextFloat() * 20f;
+
+            index.radius(x, y, z, radius, results);
+            int expected = 0;
+            for (Entity entity: entities) {
+                if (scene.hasEntity(entity) && distanceSquared(entity, x, y, z) <= radius * radius) {
+                    expected++;
+                }
+            }
+            assertEquals(expected, results.size());
+
+            index.box(x - radius, y - radius, z - radius, x + radius, y, z + radius, results);
+            expected = 0;
+            for (Entity entity: entities) {
+                Transform transform = entity.getComponent(Transform.class);
+                if (scene.hasEntity(entity) &&
+                    Math.abs(transform.getWorldX() - x) <= radius &&
+                    transform.getWorldY() >= y - radius && transform.getWorldY() <= y &&
+                    Math.abs(transform.getWorldZ() - z) <= radius) {
+                    expected++;
+                }
+            }
+            assertEquals(expected, results.size());
+
+            index.nearest(x, y, z, 5, results);
+            float[] distances = new float[entities.length];
+            int count = 0;
+            for (Entity entity: entities) {
+                if (scene.hasEntity(entity)) {
+                    distances[count++] = distanceSquared(entity, x, y, z);
+                }
+            }
+            Arrays.sort(distances, 0, count);
+            assertEquals(5, results.size());
+            for (int i = 0; i < 5; i++) {
+                assertEquals(distances[i], results.getDistanceSquared(i), 0.001f);
+            }
+        }
+    }
+
+    private static float coordinate(Random random) {
+        return random.nextFloat() * 100f - 50f;
+    }
+    private static float distanceSquared(Entity entity, float x, float y, float z) {
+        Transform transform = entity.getComponent(Transform.class);
+        float dx = transform.getWorldX() - x;
+        float dy = transform.getWorldY() - y;
+        float dz = transform.getWorldZ() - z;
+        return dx * dx + dy * dy + dz * dz;
+    }
+}
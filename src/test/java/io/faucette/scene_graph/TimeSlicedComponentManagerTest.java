@@ -0,0 +1,129 @@
+package io.faucette.scene_graph;
+
+
+import static org.junit.Assert.*;
+import org.junit.*;
+
+
+public class TimeSlicedComponentManagerTest {
+    @Test
+    public void testItemBudget() {
+        Scene scene = new Scene();
+        SlicedComponent[] components = new SlicedComponent[10];
+
+        for (int i = 0; i < components.length; i++) {
+            components[i] = new SlicedComponent();
+            scene.addEntity(new Entity().addComponent(components[i]));
+        }
+        scene.init();
+
+        TimeSlicedComponentManager manager = scene.getComponentManager(TimeSlicedComponentManager.class);
+        manager.setItemBudget(3);
+
+        for (int i = 0; i < 4; i++) {
+            scene.update();
+            assertEquals(3, manager.getUpdatedCount());
+        }
+        assertEquals(2, manager.getCursor());
+
+        for (int i = 0; i < components.length; i++) {
+            SlicedComponent component = components[i];
+
+            assertEquals(i < 2 ? 2 : 1, component.turns);
+            // the elapsed times a component sees add up to the manager's time at its last turn
+            assertEquals(component.managerElapsed, component.total, 1e-9d);
+        }
+        assertTrue(components[0].total > components[8].total);
+    }
+
+    @Test
+    public void testTimeBudgetUpdatesAtLeastOne() {
+        Scene scene = new Scene();
+
+        for (int i = 0; i < 4; i++) {
+            scene.addEntity(new Entity().addComponent(new SlicedComponent()));
+        }
+        scene.init();
+
+        TimeSlicedComponentManager manager = scene.getComponentManager(TimeSlicedComponentManager.class);
+        manager.setTimeBudget(1e-12d);
+
+        scene.update();
+        assertEquals(1, manager.getUpdatedCount());
+
+        manager.setTimeBudget(0d);
+        scene.update();
+        assertEquals(4, manager.getUpdatedCount());
+        assertEquals(1, manager.getCursor());
+    }
+
+    @Test
+    public void testElapsedAdvancesWhileAllComponentsSleep() {
+        Scene scene = new Scene();
+        SlicedComponent component = new SlicedComponent();
+
+        scene.addEntity(new Entity().addComponent(component));
+        scene.init();
+
+        TimeSlicedComponentManager manager = scene.getComponentManager(TimeSlicedComponentManager.class);
+
+        scene.update(0.5d);
+        assertEquals(0.5d, component.total, 1e-9d);
+
+        component.setActive(false);
+        scene.update(1d);
+        scene.update(1.5d);
+        scene.update(2d);
+        assertEquals(2d, manager.getElapsed(), 1e-9d);
+
+        component.setActive(true);
+        scene.update(2.5d);
+        assertEquals(2, component.turns);
+        assertEquals(2.5d, component.total, 1e-9d);
+    }
+    @Test
+    public void testElapsedAdvancesWhileEntitiesAreInactive() {
+        Scene scene = new Scene();
+        Entity parent = new Entity();
+        SlicedComponent component = new SlicedComponent();
+        SlicedComponent added = new SlicedComponent();
+
+        parent.addChild(new Entity().addComponent(component));
+        scene.addEntity(parent);
+        scene.init();
+        scene.update(0.5d);
+
+        TimeSlicedComponentManager manager = scene.getComponentManager(TimeSlicedComponentManager.class);
+
+        parent.setActive(false);
+        scene.update(1d);
+        scene.update(1.5d);
+        assertEquals(1.5d, manager.getElapsed(), 1e-9d);
+
+        // joins while the others sleep and only sees time from here on
+        scene.addEntity(new Entity().addComponent(added));
+        scene.update(2d);
+        assertEquals(0.5d, added.total, 1e-9d);
+
+        parent.setActive(true);
+        scene.update(2.5d);
+        assertEquals(2, component.turns);
+        assertEquals(2.5d, component.total, 1e-9d);
+        assertEquals(1d, added.total, 1e-9d);
+    }
+}
+
+class SlicedComponent extends TimeSlicedComponent {
+    public int turns;
+    public double total;
+    public double managerElapsed;
+
+
+    @Override
+    public SlicedComponent update(double elapsed) {
+        turns++;
+        total += elapsed;
+        managerElapsed = ((TimeSlicedComponentManager) getComponentManager()).getElapsed();
+        return this;
+    }
+}
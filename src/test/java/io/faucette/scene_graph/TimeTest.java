@@ -0,0 +1,56 @@
+package io.faucette.scene_graph;
+
+
+import static org.junit.Assert.*;
+import org.junit.*;
+
+
+public class TimeTest {
+    private static final double EPSILON = 0.000001d;
+
+
+    @Test
+    public void testFixedStepsAccumulate() {
+        Time time = new Time();
+        time.setFixedStepEnabled(true);
+        time.setFixedDelta(0.25d);
+
+        time.update(0.625d);
+        assertEquals(2, time.consumeFixedSteps());
+        assertEquals(0.5d, time.getAlpha(), EPSILON);
+
+        time.update(0.75d);
+        assertEquals(1, time.consumeFixedSteps());
+        assertEquals(0d, time.getAlpha(), EPSILON);
+        assertEquals(3, time.getFixedFrame());
+
+        time.update(0.875d);
+        assertEquals(0, time.consumeFixedSteps());
+        assertEquals(0.5d, time.getAlpha(), EPSILON);
+    }
+    @Test
+    public void testFixedStepsAreCapped() {
+        Time time = new Time();
+        time.setFixedStepEnabled(true);
+        time.setFixedDelta(0.125d);
+        time.setMaxFixedSteps(2);
+
+        time.update(0.9375d);
+        assertEquals(2, time.consumeFixedSteps());
+        assertEquals(0.5d, time.getAlpha(), EPSILON);
+
+        time.update(1d);
+        assertEquals(1, time.consumeFixedSteps());
+        assertEquals(0d, time.getAlpha(), EPSILON);
+    }
+    @Test
+    public void testFixedStepsAreOffByDefault() {
+        Time time = new Time();
+
+        time.update(1d);
+        assertFalse(time.isFixedStepEnabled());
+        assertEquals(1d / 60d, time.getFixedDelta(), EPSILON);
+        assertEquals(0, time.consumeFixedSteps());
+        assertEquals(0, time.getFixedFrame());
+    }
+}
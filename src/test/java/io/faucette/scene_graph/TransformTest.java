@@ -0,0 +1,197 @@
+package io.faucette.scene_graph;
+
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+import org.junit.*;
+
+
+public class TransformTest {
+    private static final float EPSILON = 0.0001f;
+
+
+    @Test
+    public void testWorldMatricesFollowHierarchy() {
+        Scene scene = new Scene();
+        Entity parent = new Entity();
+        Entity middle = new Entity();
+        Entity child = new Entity();
+        Transform parentTransform = new Transform();
+        Transform childTransform = new Transform();
+
+        parent.addComponent(parentTransform.setPosition(1f, 0f, 0f));
+        child.addComponent(childTransform.setPosition(0f, 2f, 0f));
+        parent.addChild(middle);
+        middle.addChild(child);
+        scene.addEntity(parent);
+        scene.init();
+        scene.update();
+
+        assertEquals(1f, childTransform.getWorldX(), EPSILON);
+        assertEquals(2f, childTransform.getWorldY(), EPSILON);
+
+        float half = (float) Math.sqrt(0.5d);
+        parentTransform.setRotation(0f, 0f, half, half);
+        scene.update();
+
+        assertEquals(-1f, childTransform.getWorldX(), EPSILON);
+        assertEquals(0f, childTransform.getWorldY(), EPSILON);
+    }
+    @Test
+    public void testStaticTransformsAreNotRecomputed() {
+        Scene scene = new Scene();
+        Transform[] transforms = new Transform[100];
+
+        for (int i = 0; i < transforms.length; i++) {
+            Entity entity = new Entity();
+            transforms[i] = new Transform().setPosition(i, 0f, 0f);
+            entity.addComponent(transforms[i]);
+            scene.addEntity(entity);
+        }
+        scene.init();
+        scene.update();
+
+        TransformManager manager = scene.getComponentManager(TransformManager.class);
+        assertEquals(100, manager.getUpdatedCount());
+
+        scene.update();
+        assertEquals(0, manager.getUpdatedCount());
+
+        transforms[10].translate(0f, 1f, 0f);
+        scene.update();
+        assertEquals(1, manager.getUpdatedCount());
+        assertEquals(1f, transforms[10].getWorldY(), EPSILON);
+    }
+    @Test
+    public void testReparentingMovesSubtree() {
+        Scene scene = new Scene();
+        Entity a = new Entity();
+        Entity b = new Entity();
+        Entity child = new Entity();
+        Entity grandchild = new Entity();
+        Transform grandchildTransform = new Transform().setPosition(0f, 0f, 1f);
+
+        a.addComponent(new Transform().setPosition(10f, 0f, 0f));
+        b.addComponent(new Transform().setPosition(0f, 10f, 0f));
+        child.addComponent(new Transform().setScale(2f, 2f, 2f));
+        grandchild.addComponent(grandchildTransform);
+        child.addChild(grandchild);
+        a.addChild(child);
+
+        scene.addEntity(a);
+        scene.addEntity(b);
+        scene.init();
+        scene.update();
+
+        assertEquals(10f, grandchildTransform.getWorldX(), EPSILON);
+        assertEquals(2f, grandchildTransform.getWorldZ(), EPSILON);
+
+        b.addChild(child);
+        scene.update();
+
+        assertEquals(0f, grandchildTransform.getWorldX(), EPSILON);
+        assertEquals(10f, grandchildTransform.getWorldY(), EPSILON);
+        assertEquals(2f, grandchildTransform.getWorldZ(), EPSILON);
+    }
+    @Test
+    public void testParallelMovesAreNotLost() {
+        ForkJoinPool pool = new ForkJoinPool(8);
+        Scene scene = new Scene().setExecutor(pool);
+        // enough for a few dozen 64 item chunks
+        Transform[] transforms = new Transform[4096];
+
+        try {
+            for (int i = 0; i < transforms.length; i++) {
+                Entity entity = new Entity();
+
+                transforms[i] = new Transform();
+                entity.addComponent(transforms[i]);
+                entity.addComponent(new MoverComponent());
+                scene.addEntity(entity);
+            }
+            scene.init();
+            scene.update();
+
+            transforms[0].getEntity().getComponent(MoverComponent.class).getComponentManager()
+                .setParallel(true)
+                .setMinChunkSize(64);
+
+            MoverComponent.moving = true;
+            scene.update();
+            MoverComponent.moving = false;
+            scene.update();
+
+            int stale = 0;
+            for (int i = 0; i < transforms.length; i++) {
+                if (transforms[i].getWorldX() != 1f) {
+                    stale++;
+                }
+            }
+            assertEquals(0, stale);
+        } finally {
+            MoverComponent.moving = false;
+            pool.shutdown();
+        }
+    }
+    @Test
+    public void testInactiveTransformsCatchUpWhenReactivated() {
+        Scene scene = new Scene();
+        Entity parent = new Entity();
+        Entity child = new Entity();
+        Transform parentTransform = new Transform();
+        Transform childTransform = new Transform().setPosition(0f, 1f, 0f);
+
+        parent.addComponent(parentTransform);
+        child.addComponent(childTransform);
+        parent.addChild(child);
+        scene.addEntity(parent);
+        scene.init();
+        scene.update();
+
+        TransformManager manager = (TransformManager) parentTransform.getComponentManager();
+
+        parent.setActive(false);
+        scene.update();
+        parentTransform.setPosition(5f, 0f, 0f);
+        scene.update();
+
+        assertEquals(0, manager.getUpdatedCount());
+        assertEquals(0f, childTransform.getWorldX(), EPSILON);
+
+        parent.setActive(true);
+        scene.update();
+
+        assertEquals(2, manager.getUpdatedCount());
+        assertEquals(5f, childTransform.getWorldX(), EPSILON);
+        assertEquals(1f, childTransform.getWorldY(), EPSILON);
+    }
+}
+
+class MoverComponent extends Component {
+    static volatile boolean moving;
+
+
+    @Override
+    public Class<? extends ComponentManager> getComponentManagerClass() {
+        return MoverManager.class;
+    }
+    @Override
+    public ComponentManager createComponentManager() {
+        return new MoverManager();
+    }
+    @Override
+    public MoverComponent update() {
+        if (moving) {
+            entity.getComponent(Transform.class).translate(1f, 0f, 0f);
+        }
+        return this;
+    }
+}
+
+class MoverManager extends ComponentManager {
+    public MoverManager() {
+        super();
+        declareWrite(Transform.class);
+    }
+}
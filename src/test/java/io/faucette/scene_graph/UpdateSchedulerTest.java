@@ -0,0 +1,298 @@
+package io.faucette.scene_graph;
+
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import org.junit.*;
+
+
+public class UpdateSchedulerTest {
+    @Test
+    public void testDisjointManagersRunInParallel() {
+        ForkJoinPool pool = new ForkJoinPool(2);
+        Scene scene = new Scene().setExecutor(pool);
+        Entity entity = new Entity();
+
+        entity.addComponent(new ReaderComponentA());
+        entity.addComponent(new ReaderComponentB());
+        scene.addEntity(entity);
+        scene.init();
+        scene.update();
+
+        assertTrue(scene.getComponentManager(ReaderManagerA.class).met);
+        assertTrue(scene.getComponentManager(ReaderManagerB.class).met);
+
+        pool.shutdown();
+    }
+    @Test
+    public void testConflictingManagersKeepOrder() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        Scene scene = new Scene().setExecutor(pool);
+        Entity entity = new Entity();
+        List<String> log = Collections.synchronizedList(new ArrayList<String>());
+
+        entity.addComponent(new WriterComponentA(log));
+        entity.addComponent(new WriterComponentB(log));
+        scene.addEntity(entity);
+        scene.init();
+
+        for (int i = 0; i < 10; i++) {
+            log.clear();
+            scene.update();
+            assertEquals(2, log.size());
+            assertEquals("first", log.get(0));
+            assertEquals("second", log.get(1));
+        }
+
+        pool.shutdown();
+    }
+    @Test
+    public void testChunkedManagerUpdate() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        Scene scene = new Scene().setExecutor(pool);
+        ChunkedComponent[] components = new ChunkedComponent[10000];
+
+        for (int i = 0; i < components.length; i++) {
+            Entity entity = new Entity();
+            components[i] = new ChunkedComponent(i % 100 == 0);
+            entity.addComponent(components[i]);
+            scene.addEntity(entity);
+        }
+
+        ChunkedComponentManager manager = scene.getComponentManager(ChunkedComponentManager.class);
+        manager.setParallel(true).setMinChunkSize(64);
+
+        scene.init();
+        scene.update();
+        scene.update();
+
+        Thread current = Thread.currentThread();
+        for (ChunkedComponent component: components) {
+            assertEquals(2, component.updates);
+
+            if (component.confined) {
+                assertSame(current, component.thread);
+            }
+        }
+
+        pool.shutdown();
+    }
+    @Test
+    public void testChunksRunOnTheSceneExecutor() throws Exception {
+        ForkJoinPool pool = new ForkJoinPool(2);
+        ForkJoinPool other = new ForkJoinPool(2);
+
+        try {
+            Scene scene = new Scene().setExecutor(pool);
+            ChunkedComponent[] components = new ChunkedComponent[1000];
+
+            for (int i = 0; i < components.length; i++) {
+                Entity entity = new Entity();
+                components[i] = new ChunkedComponent(false);
+                entity.addComponent(components[i]);
+                scene.addEntity(entity);
+            }
+
+            final ChunkedComponentManager manager = scene.getComponentManager(ChunkedComponentManager.class);
+            manager.setParallel(true).setMinChunkSize(64);
+            scene.init();
+
+            // updated from a worker of an unrelated pool
+            other.submit(new Runnable() {
+                public void run() {
+                    manager.update();
+                }
+            }).get();
+
+            for (ChunkedComponent component: components) {
+                assertEquals(1, component.updates);
+                assertSame(pool, component.pool);
+            }
+        } finally {
+            pool.shutdown();
+            other.shutdown();
+        }
+    }
+}
+
+class ChunkedComponent extends Component {
+    public final boolean confined;
+    public int updates;
+    public Thread thread;
+    public ForkJoinPool pool;
+
+
+    public ChunkedComponent(boolean confined) {
+        super();
+        this.confined = confined;
+        updates = 0;
+        thread = null;
+    }
+    @Override
+    public Class<? extends ComponentManager> getComponentManagerClass() {
+        return ChunkedComponentManager.class;
+    }
+    @Override
+    public ComponentManager createComponentManager() {
+        return new ChunkedComponentManager();
+    }
+    @Override
+    public boolean isThreadConfined() {
+        return confined;
+    }
+    @Override
+    public Component update() {
+        updates++;
+        thread = Thread.currentThread();
+        pool = ForkJoinTask.getPool();
+        return this;
+    }
+}
+
+class ChunkedComponentManager extends ComponentManager {}
+
+class ReaderComponentA extends Component {
+    @Override
+    public Class<? extends ComponentManager> getComponentManagerClass() {
+        return ReaderManagerA.class;
+    }
+    @Override
+    public ComponentManager createComponentManager() {
+        return new ReaderManagerA();
+    }
+}
+
+class ReaderComponentB extends Component {
+    @Override
+    public Class<? extends ComponentManager> getComponentManagerClass() {
+        return ReaderManagerB.class;
+    }
+    @Override
+    public ComponentManager createComponentManager() {
+        return new ReaderManagerB();
+    }
+}
+
+class ReaderManager extends ComponentManager {
+    private static final CyclicBarrier barrier = new CyclicBarrier(2);
+    public boolean met;
+
+
+    public ReaderManager(Class<? extends Component> componentClass) {
+        super();
+        met = false;
+        declareRead(componentClass);
+        declareWrite(componentClass);
+    }
+    @Override
+    public ComponentManager update() {
+        try {
+            barrier.await(5, TimeUnit.SECONDS);
+            met = true;
+        } catch (Exception e) {
+            met = false;
+        }
+        return this;
+    }
+}
+
+class ReaderManagerA extends ReaderManager {
+    public ReaderManagerA() {
+        super(ReaderComponentA.class);
+    }
+}
+
+class ReaderManagerB extends ReaderManager {
+    public ReaderManagerB() {
+        super(ReaderComponentB.class);
+    }
+}
+
+class WriterComponentA extends Component {
+    private final List<String> log;
+
+
+    public WriterComponentA(List<String> log) {
+        super();
+        this.log = log;
+    }
+    @Override
+    public Class<? extends ComponentManager> getComponentManagerClass() {
+        return WriterManagerA.class;
+    }
+    @Override
+    public ComponentManager createComponentManager() {
+        return new WriterManagerA(log);
+    }
+}
+
+class WriterComponentB extends Component {
+    private final List<String> log;
+
+
+    public WriterComponentB(List<String> log) {
+        super();
+        this.log = log;
+    }
+    @Override
+    public Class<? extends ComponentManager> getComponentManagerClass() {
+        return WriterManagerB.class;
+    }
+    @Override
+    public ComponentManager createComponentManager() {
+        return new WriterManagerB(log);
+    }
+}
+
+class WriterManagerA extends ComponentManager {
+    private final List<String> log;
+
+
+    public WriterManagerA(List<String> log) {
+        super();
+        this.log = log;
+        declareWrite(WriterComponentA.class);
+    }
+    @Override
+    public ComponentManager update() {
+        try {
+            Thread.sleep(5);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        log.add("first");
+        return this;
+    }
+    @Override
+    public int getOrder() {
+        return 0;
+    }
+}
+
+class WriterManagerB extends ComponentManager {
+    private final List<String> log;
+
+
+    public WriterManagerB(List<String> log) {
+        super();
+        this.log = log;
+        declareRead(WriterComponentA.class);
+        declareWrite(WriterComponentB.class);
+    }
+    @Override
+    public ComponentManager update() {
+        log.add("second");
+        return this;
+    }
+    @Override
+    public int getOrder() {
+        return 1;
+    }
+}